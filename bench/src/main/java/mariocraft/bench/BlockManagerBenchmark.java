@@ -0,0 +1,88 @@
+package mariocraft.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mariocraft.model.BlockManager;
+import mariocraft.model.Boulder;
+import mariocraft.model.ColliderBuffer;
+
+/**
+ * Measures the lookup of the blocks and boulders near a rectangle the
+ * size of the protagonist, which is done for the protagonist and every
+ * ball each update.
+ * 
+ * @author Sebastian Olsson
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class BlockManagerBenchmark {
+    private static final float BLOCK_SIZE = 50;
+    private static final int QUERIES = 1024;
+    private static final float QUERY_WIDTH = 40;
+    private static final float QUERY_HEIGHT = 80;
+    
+    @Param({"1000"})
+    public int width;
+    
+    @Param({"20", "200"})
+    public int height;
+    
+    @Param({"0.1", "0.5"})
+    public float density;
+    
+    private BlockManager blocks;
+    private ColliderBuffer colliders;
+    private float[] xs;
+    private float[] ys;
+    private int next;
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        blocks = new BlockManager(width, height, BLOCK_SIZE);
+        colliders = new ColliderBuffer();
+        for (int col = 0; col < width; col++) {
+            for (int row = 0; row < height; row++) {
+                float x = BLOCK_SIZE*col+BLOCK_SIZE/2;
+                float y = BLOCK_SIZE*row+BLOCK_SIZE/2;
+                float r = random.nextFloat();
+                if (r < density/2) {
+                    blocks.addTile(col, row);
+                } else if (r < density) {
+                    blocks.addBoulder(new Boulder(x, y, BLOCK_SIZE, BLOCK_SIZE));
+                }
+            }
+        }
+        blocks.mergeTiles();
+        xs = new float[QUERIES];
+        ys = new float[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            xs[i] = random.nextFloat()*width*BLOCK_SIZE;
+            ys[i] = random.nextFloat()*height*BLOCK_SIZE;
+        }
+    }
+    
+    @Benchmark
+    public int getCollidersIn() {
+        next = (next+1) & (QUERIES-1);
+        blocks.getCollidersIn(xs[next], ys[next], QUERY_WIDTH, QUERY_HEIGHT, colliders);
+        return colliders.size();
+    }
+}
@@ -0,0 +1,92 @@
+package mariocraft.bench;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mariocraft.util.BatchIntersector;
+
+/**
+ * Measures the test of a box against a cluster of blocks: one pair at a
+ * time through Rectangle2D, and with a batch intersector of
+ * mariocraft.util. VectorIntersector is only there if the benchmarks
+ * were built with -Pvector, and is then measured with
+ * -p intersector=ScalarIntersector,VectorIntersector
+ * -jvmArgsAppend "--add-modules=jdk.incubator.vector".
+ *
+ * @author Sebastian Olsson
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class IntersectBenchmark {
+    private static final float BLOCK_SIZE = 50;
+
+    @Param({"8", "64", "512"})
+    public int boxes;
+
+    @Param({"ScalarIntersector"})
+    public String intersector;
+
+    private float[] xs;
+    private float[] ys;
+    private float[] ws;
+    private float[] hs;
+    private Rectangle2D.Float[] rectangles;
+    private long[] mask;
+    private Rectangle2D.Float box;
+    private BatchIntersector batch;
+
+    @Setup
+    public void setup() throws Exception {
+        Random random = new Random(42);
+        xs = new float[boxes];
+        ys = new float[boxes];
+        ws = new float[boxes];
+        hs = new float[boxes];
+        rectangles = new Rectangle2D.Float[boxes];
+        // A square cluster of blocks around the box
+        int side = (int)Math.ceil(Math.sqrt(boxes));
+        for (int i = 0; i < boxes; i++) {
+            xs[i] = BLOCK_SIZE*(i%side)+random.nextFloat();
+            ys[i] = BLOCK_SIZE*(i/side)+random.nextFloat();
+            ws[i] = BLOCK_SIZE;
+            hs[i] = BLOCK_SIZE;
+            rectangles[i] = new Rectangle2D.Float(xs[i], ys[i], ws[i], hs[i]);
+        }
+        mask = new long[(boxes+63)/64];
+        box = new Rectangle2D.Float(BLOCK_SIZE*side/2, BLOCK_SIZE*side/2, 40, 70);
+        batch = (BatchIntersector)Class.forName("mariocraft.util."+intersector).getDeclaredConstructor().newInstance();
+    }
+
+    @Benchmark
+    public int perPair() {
+        int hits = 0;
+        for (int i = 0; i < boxes; i++) {
+            if (box.intersects(rectangles[i])) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int batch() {
+        return batch.intersect(box.x, box.y, box.width, box.height, xs, ys, ws, hs, boxes, mask);
+    }
+}
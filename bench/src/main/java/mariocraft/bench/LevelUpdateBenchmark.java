@@ -0,0 +1,65 @@
+package mariocraft.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mariocraft.model.KeyState;
+import mariocraft.model.Level;
+
+/**
+ * Measures a whole update of levels of different sizes and populations,
+ * with the protagonist walking to the right.
+ * 
+ * @author Sebastian Olsson
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class LevelUpdateBenchmark {
+    
+    @Param({"100", "1000"})
+    public int width;
+    
+    @Param({"20", "100"})
+    public int height;
+    
+    @Param({"0", "50", "500"})
+    public int balls;
+    
+    @Param({"0", "20"})
+    public int platforms;
+    
+    private Level level;
+    
+    @Setup
+    public void setup() throws IOException {
+        level = SyntheticLevels.create(width, height, balls, platforms, 42);
+        KeyState keys = new KeyState();
+        keys.right = true;
+        level.setKeyState(keys);
+    }
+    
+    @Benchmark
+    public Level update() {
+        if (level.isFinished()) {
+            level.resetProtagonist();
+        }
+        level.update();
+        return level;
+    }
+}
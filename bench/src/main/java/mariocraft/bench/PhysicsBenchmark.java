@@ -0,0 +1,72 @@
+package mariocraft.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mariocraft.geom.Vector2D;
+import mariocraft.model.BallSystem;
+import mariocraft.model.Block;
+import mariocraft.model.ColliderBuffer;
+import mariocraft.model.Protagonist;
+import mariocraft.util.PhysicsUtil;
+
+/**
+ * Measures the movement of sprites onto a block. Before every move the
+ * sprite is put back just above the block, falling onto it.
+ * 
+ * @author Sebastian Olsson
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PhysicsBenchmark {
+    private static final float BLOCK_SIZE = 50;
+    
+    private Block block;
+    private ColliderBuffer colliders;
+    private Protagonist prot;
+    private BallSystem balls;
+    private Vector2D falling;
+    
+    @Setup
+    public void setup() {
+        block = new Block(100, 100, BLOCK_SIZE, BLOCK_SIZE);
+        colliders = new ColliderBuffer();
+        colliders.add(block);
+        prot = new Protagonist(100, 0, 40, 70, 5, 15, 50, BLOCK_SIZE);
+        balls = new BallSystem();
+        balls.add(100, 0, 39, 39, new Vector2D(3, 1), new Random(42));
+        balls.refit();
+        falling = new Vector2D(0, 5);
+    }
+    
+    @Benchmark
+    public float moveProtagonist() {
+        prot.setLocation(80, 2);
+        prot.setVelocity(falling);
+        PhysicsUtil.moveProtagonist(prot, colliders);
+        return prot.getCenterY();
+    }
+    
+    @Benchmark
+    public float moveBall() {
+        balls.setLocation(0, 80, 33);
+        balls.setVelocity(0, falling.x, falling.y);
+        PhysicsUtil.moveBall(balls, 0, colliders);
+        return balls.getY(0);
+    }
+}
@@ -0,0 +1,112 @@
+package mariocraft.bench;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+
+import mariocraft.model.Level;
+import mariocraft.model.LevelConstants;
+import mariocraft.model.LevelGenerator;
+
+/**
+ * Builds levels of a given size and population for the benchmarks.
+ * The levels are walled in and scattered with blocks and boulders.
+ * 
+ * @author Sebastian Olsson
+ */
+public class SyntheticLevels {
+    private static final float BLOCK_DENSITY = 0.1f;
+    private static final float BOULDER_DENSITY = 0.02f;
+    
+    /**
+     * Creates a level.
+     * 
+     * @param width Number of columns
+     * @param height Number of rows
+     * @param balls Number of balls
+     * @param platforms Number of moving platforms
+     * @param seed Decides where everything is placed
+     * @return The level
+     */
+    public static Level create(int width, int height, int balls, int platforms, long seed) throws IOException {
+        LevelConstants lc = new LevelConstants(new ByteArrayInputStream(mechanics(platforms).getBytes("UTF-8")));
+        return LevelGenerator.generate(new BufferedReader(new StringReader(map(width, height, balls, platforms, seed))), lc, seed);
+    }
+    
+    /**
+     * @return The contents of a map.txt for a level
+     */
+    public static String map(int width, int height, int balls, int platforms, long seed) {
+        Random random = new Random(seed);
+        char[][] map = new char[height][width];
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                if (row == 0 || row == height-1 || col == 0 || col == width-1) {
+                    map[row][col] = '#';
+                } else {
+                    float r = random.nextFloat();
+                    if (r < BOULDER_DENSITY) {
+                        map[row][col] = '0';
+                    } else if (r < BOULDER_DENSITY+BLOCK_DENSITY) {
+                        map[row][col] = '#';
+                    } else {
+                        map[row][col] = ' ';
+                    }
+                }
+            }
+        }
+        // Room for the protagonist in the lower left corner and the goal in the lower right corner
+        for (int row = height-4; row < height-1; row++) {
+            for (int col = 1; col < 4; col++) {
+                map[row][col] = ' ';
+                map[row][width-1-col] = ' ';
+            }
+        }
+        map[height-2][2] = 'P';
+        map[height-3][width-3] = 'G';
+        place(map, 'B', balls, random);
+        place(map, '-', platforms, random);
+        
+        StringBuilder sb = new StringBuilder();
+        for (char[] row : map) {
+            sb.append(row).append('\n');
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * @return The contents of a mechanics.txt defining the given number of moving platforms
+     */
+    public static String mechanics(int platforms) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < platforms; i++) {
+            sb.append("MOVING_PLATFORM_WIDTH 150\n");
+            sb.append("MOVING_PLATFORM_HEIGHT 40\n");
+            sb.append("MOVING_PLATFORM_PATTERN_X 100 0 -100 0\n");
+            sb.append("MOVING_PLATFORM_PATTERN_Y 0 -50 0 50\n");
+            sb.append("MOVING_PLATFORM_PERIODS 50 25 50 25\n");
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Puts the character in the given number of empty, random places.
+     */
+    private static void place(char[][] map, char c, int count, Random random) {
+        int height = map.length;
+        int width = map[0].length;
+        if (count > (width-2)*(height-2)) {
+            throw new IllegalArgumentException("The level is too small for "+count+" of '"+c+"'");
+        }
+        while (count > 0) {
+            int row = 1+random.nextInt(height-2);
+            int col = 1+random.nextInt(width-2);
+            if (map[row][col] == ' ') {
+                map[row][col] = c;
+                count--;
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package mariocraft.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mariocraft.geom.Vector2D;
+
+/**
+ * Measures the vector operations used by the physics every update.
+ * 
+ * @author Sebastian Olsson
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorBenchmark {
+    private static final Vector2D X_AXIS = new Vector2D(1, 0);
+    
+    private Vector2D v1 = new Vector2D(3, 1);
+    private Vector2D v2 = new Vector2D(0, 0.5f);
+    private float angle = (float)(Math.PI/60);
+    
+    @Benchmark
+    public Vector2D add() {
+        return v1.add(v2);
+    }
+    
+    @Benchmark
+    public Vector2D project() {
+        return v1.project(X_AXIS);
+    }
+    
+    @Benchmark
+    public Vector2D addArg() {
+        return v1.addArg(angle);
+    }
+    
+    @Benchmark
+    public Vector2D normalize() {
+        return v1.normalize();
+    }
+}
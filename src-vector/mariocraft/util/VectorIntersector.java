@@ -0,0 +1,62 @@
+package mariocraft.util;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Tests as many boxes at a time as fit in a vector register, using the
+ * incubating Vector API of JDK 16 and later. The game itself is built
+ * for older Java versions, so this class lies in a source folder of its
+ * own and is only compiled by the vector profile of the benchmarks.
+ * PhysicsUtil picks it up when it is there, the JVM was started with
+ * --add-modules jdk.incubator.vector and -Dmariocraft.vector=true.
+ * 
+ * The trade-off is garbage: the masks of the comparisons are objects
+ * that the JIT does not always keep in registers, and vectors cannot be
+ * reused, since they are immutable. On JDK 17 with AVX-512 a call
+ * allocates 2 bytes per box, whatever the order of the operations. That
+ * breaks the zero-garbage level update, so the plain loop of
+ * ScalarIntersector stays the default and AllocationTest runs with it.
+ *
+ * @author Sebastian Olsson
+ */
+public class VectorIntersector implements BatchIntersector {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int intersect(float x, float y, float w, float h, float[] xs, float[] ys, float[] ws, float[] hs, int n, long[] mask) {
+        float right = x+w;
+        float bottom = y+h;
+        for(int word = 0;word*64 < n;word++) {
+            mask[word] = 0;
+        }
+        int hits = 0;
+        int i = 0;
+        // A vector holds a power of two lanes, at most 64, so its bits never straddle two words.
+        for(int bound = SPECIES.loopBound(n);i < bound;i += SPECIES.length()) {
+            FloatVector bx = FloatVector.fromArray(SPECIES, xs, i);
+            FloatVector by = FloatVector.fromArray(SPECIES, ys, i);
+            FloatVector bw = FloatVector.fromArray(SPECIES, ws, i);
+            FloatVector bh = FloatVector.fromArray(SPECIES, hs, i);
+            VectorMask<Float> hit = bx.compare(VectorOperators.LE, right)
+                .and(bx.add(bw).compare(VectorOperators.GE, x))
+                .and(by.compare(VectorOperators.LE, bottom))
+                .and(by.add(bh).compare(VectorOperators.GE, y));
+            long bits = hit.toLong();
+            mask[i >> 6] |= bits << (i & 63);
+            hits += Long.bitCount(bits);
+        }
+        for(;i < n;i++) {
+            if(xs[i] <= right && xs[i]+ws[i] >= x && ys[i] <= bottom && ys[i]+hs[i] >= y) {
+                mask[i >> 6] |= 1L << (i & 63);
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
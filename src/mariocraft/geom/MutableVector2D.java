@@ -0,0 +1,94 @@
+package mariocraft.geom;
+
+/**
+ * A vector in Euclidian 2D-space that is changed in place. Meant for
+ * scratch math in code that runs every update, where a Vector2D for
+ * every step would only make garbage.
+ *
+ * @author Sebastian Olsson
+ */
+public class MutableVector2D {
+    public float x;
+    public float y;
+
+    /**
+     * Creates a zero vector.
+     */
+    public MutableVector2D() {
+    }
+
+    /**
+     * Creates a vector.
+     *
+     * @param x x-component
+     * @param y y-component
+     */
+    public MutableVector2D(float x, float y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Sets the components.
+     *
+     * @return This vector
+     */
+    public MutableVector2D set(float x, float y) {
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    /**
+     * Sets the components to those of another vector.
+     *
+     * @return This vector
+     */
+    public MutableVector2D set(Vector2D v) {
+        return set(v.x, v.y);
+    }
+
+    /**
+     * Adds to the components.
+     *
+     * @return This vector
+     */
+    public MutableVector2D add(float dx, float dy) {
+        x += dx;
+        y += dy;
+        return this;
+    }
+
+    /**
+     * Multiplies the components by a scalar.
+     *
+     * @return This vector
+     */
+    public MutableVector2D scalarMultiply(float scalar) {
+        x *= scalar;
+        y *= scalar;
+        return this;
+    }
+
+    /**
+     * @return Vector length
+     */
+    public float norm() {
+        return (float)Math.sqrt(x*x+y*y);
+    }
+
+    /**
+     * @return An immutable copy of the vector
+     */
+    public Vector2D toVector() {
+        return new Vector2D(x, y);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "("+x+","+y+")";
+    }
+}
@@ -76,6 +76,17 @@ public class Vector2D {
      * @return Argument
      */
     public float arg() {
+        return arg(x, y);
+    }
+    
+    /**
+     * Returns the argument of the vector (x, y), as given by arg().
+     * 
+     * @param x x-component
+     * @param y y-component
+     * @return Argument
+     */
+    public static float arg(float x, float y) {
         final float PI = (float)Math.PI;
         
         if (x == 0) {
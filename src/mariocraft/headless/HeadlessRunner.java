@@ -0,0 +1,261 @@
+package mariocraft.headless;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import mariocraft.metrics.RollingHistogram;
+import mariocraft.metrics.TickProfiler;
+import mariocraft.model.InputRecording;
+import mariocraft.model.KeyState;
+import mariocraft.model.Level;
+import mariocraft.model.LevelGenerator;
+import mariocraft.model.TickPhase;
+
+/**
+ * Runs levels as fast as possible without a screen, feeding them input
+ * from a script. Used to measure how many updates per second the game
+ * can do and how a level ends for a given input. Recordings of played
+ * levels can be replayed, on the screen size they were played on, which
+ * plays them out exactly like they did.
+ * 
+ * Usage: java -Djava.awt.headless=true mariocraft.headless.HeadlessRunner [maxTicks] [level...]
+ *        java -Djava.awt.headless=true mariocraft.headless.HeadlessRunner --replay recording...
+ * 
+ * @author Sebastian Olsson
+ */
+public class HeadlessRunner {
+    
+    private static final int DEFAULT_MAX_TICKS = 100000;
+    private static final long DEFAULT_SEED = 0;
+    
+    /**
+     * Walks to the right, jumping every now and then.
+     */
+    public static final InputScript WALK_RIGHT = new InputScript() {
+        public void apply(int tick, KeyState keys) {
+            keys.right = true;
+            keys.jump = tick % 40 < 15;
+        }
+    };
+    
+    private InputScript script;
+    private int maxTicks;
+    private int screenWidth;
+    private int screenHeight;
+    private TickProfiler profiler;
+    
+    /**
+     * Creates a runner.
+     * 
+     * @param script The input fed to the levels
+     * @param maxTicks The number of updates after which a level is given up on
+     */
+    public HeadlessRunner(InputScript script, int maxTicks) {
+        this.script = script;
+        this.maxTicks = maxTicks;
+        profiler = new TickProfiler();
+    }
+    
+    /**
+     * Creates a runner that feeds a level the keys of a recording for
+     * as many updates as were recorded, on the screen size it was
+     * recorded on.
+     * 
+     * @param recording The recorded input
+     * @return A runner replaying the recording
+     */
+    public static HeadlessRunner replaying(final InputRecording recording) {
+        HeadlessRunner runner = new HeadlessRunner(new InputScript() {
+            public void apply(int tick, KeyState keys) {
+                keys.setBits(recording.getBits(tick));
+            }
+        }, recording.getTicks());
+        runner.setScreenSize(recording.getScreenWidth(), recording.getScreenHeight());
+        return runner;
+    }
+    
+    /**
+     * Sets the size of the screen that the levels are run as if they were
+     * shown on, which is none at first. It decides which balls and moving
+     * platforms are updated, so a level only plays out the same on the
+     * same screen size.
+     */
+    public void setScreenSize(int w, int h) {
+        screenWidth = w;
+        screenHeight = h;
+    }
+    
+    /**
+     * @return The profiler measuring the updates of all levels run
+     */
+    public TickProfiler getProfiler() {
+        return profiler;
+    }
+    
+    /**
+     * Loads the given level with the default seed and runs it until it
+     * is beat or maxTicks updates have passed.
+     * 
+     * @param levelName The directory of the level, e.g. "level1/"
+     * @return The outcome of the run
+     * @throws IOException If the level could not be read
+     */
+    public Result run(String levelName) throws IOException {
+        return run(levelName, DEFAULT_SEED);
+    }
+    
+    /**
+     * Loads the given level and runs it until it is beat or maxTicks
+     * updates have passed. Whenever the protagonist dies it is reset,
+     * just like in the game.
+     * 
+     * @param levelName The directory of the level, e.g. "level1/"
+     * @param seed The seed of the level
+     * @return The outcome of the run
+     * @throws IOException If the level could not be read
+     */
+    public Result run(String levelName, long seed) throws IOException {
+        LevelGenerator lg = new LevelGenerator(new String[]{levelName}, seed);
+        lg.generateNext();
+        return run(levelName, lg.getNextLevel());
+    }
+    
+    /**
+     * Runs the given level until it is beat or maxTicks updates have passed.
+     * 
+     * @param levelName The name reported for the level
+     * @param level The level to run
+     * @return The outcome of the run
+     */
+    public Result run(String levelName, Level level) {
+        KeyState keys = new KeyState();
+        level.setKeyState(keys);
+        level.setProfiler(profiler);
+        level.setScreenSize(screenWidth, screenHeight);
+        
+        int ticks = 0;
+        int deaths = 0;
+        long start = System.nanoTime();
+        while (ticks < maxTicks) {
+            if (level.isFinished()) {
+                if (level.isVictorious()) {
+                    break;
+                }
+                deaths++;
+                level.resetProtagonist();
+            }
+            script.apply(ticks, keys);
+            level.update();
+            ticks++;
+        }
+        long elapsed = System.nanoTime() - start;
+        return new Result(levelName, ticks, elapsed, deaths, level.isVictorious());
+    }
+    
+    /**
+     * The outcome of running a level.
+     */
+    public static class Result {
+        public final String level;
+        public final int ticks;
+        public final long nanos;
+        public final int deaths;
+        public final boolean victorious;
+        
+        private Result(String level, int ticks, long nanos, int deaths, boolean victorious) {
+            this.level = level;
+            this.ticks = ticks;
+            this.nanos = nanos;
+            this.deaths = deaths;
+            this.victorious = victorious;
+        }
+        
+        /**
+         * @return The number of updates done per second
+         */
+        public double ticksPerSecond() {
+            return nanos == 0 ? 0 : ticks*1000000000.0/nanos;
+        }
+        
+        /**
+         * @return A line describing the outcome
+         */
+        @Override
+        public String toString() {
+            return level+" "+(victorious ? "victorious" : "not beat")+
+                   " after "+ticks+" ticks, "+deaths+" deaths, "+
+                   (int)ticksPerSecond()+" ticks/s";
+        }
+    }
+    
+    /**
+     * Runs the given levels, or all of them, and prints the outcomes.
+     */
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        
+        if (args.length > 0 && args[0].equals("--replay")) {
+            for (int i = 1; i < args.length; i++) {
+                replay(args[i]);
+            }
+            return;
+        }
+        
+        int maxTicks = DEFAULT_MAX_TICKS;
+        String[] levels = LevelGenerator.LEVELS;
+        if (args.length > 0) {
+            maxTicks = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            levels = new String[args.length-1];
+            System.arraycopy(args, 1, levels, 0, levels.length);
+        }
+        
+        HeadlessRunner runner = new HeadlessRunner(WALK_RIGHT, maxTicks);
+        int totalTicks = 0;
+        long totalNanos = 0;
+        for (String level : levels) {
+            Result result = runner.run(level);
+            System.out.println(result);
+            totalTicks += result.ticks;
+            totalNanos += result.nanos;
+        }
+        System.out.println("Total: "+totalTicks+" ticks, "+(int)(totalTicks*1000000000.0/totalNanos)+" ticks/s");
+        printProfile(runner.getProfiler());
+    }
+    
+    /**
+     * Replays the recording in the given file and prints the outcome.
+     */
+    private static void replay(String file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        InputRecording recording;
+        try {
+            recording = InputRecording.read(in);
+        } finally {
+            in.close();
+        }
+        HeadlessRunner runner = replaying(recording);
+        System.out.println(file+": "+runner.run(recording.getLevelName(), recording.getSeed()));
+        printProfile(runner.getProfiler());
+    }
+    
+    /**
+     * Prints how long each phase of the latest updates took.
+     */
+    private static void printProfile(TickProfiler profiler) {
+        System.out.println("Latest ticks per phase (ns): p50 p99 max");
+        for (TickPhase phase : TickPhase.values()) {
+            printHistogram(phase.getTitle(), profiler.getHistogram(phase));
+        }
+        printHistogram("Total", profiler.getTotal());
+    }
+    
+    /**
+     * Prints the median, 99th percentile and maximum of a histogram.
+     */
+    private static void printHistogram(String name, RollingHistogram h) {
+        System.out.println("  "+name+": "+h.getPercentile(50)+" "+h.getPercentile(99)+" "+h.getMax());
+    }
+}
@@ -0,0 +1,20 @@
+package mariocraft.headless;
+
+import mariocraft.model.KeyState;
+
+/**
+ * Decides which keys are held down during each update of a level
+ * that is run without a player.
+ * 
+ * @author Sebastian Olsson
+ */
+public interface InputScript {
+    
+    /**
+     * Sets the keys held down during the given update.
+     * 
+     * @param tick The number of updates that have passed in the level
+     * @param keys The key state read by the level
+     */
+    void apply(int tick, KeyState keys);
+}
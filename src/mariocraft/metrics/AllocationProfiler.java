@@ -0,0 +1,41 @@
+package mariocraft.metrics;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures how many bytes each phase of a level update allocates, instead
+ * of how long it takes. Relies on com.sun.management.ThreadMXBean, which
+ * counts the bytes allocated by a thread, so the updates must all be done
+ * by the thread that marks them.
+ *
+ * @author Sebastian Olsson
+ */
+public class AllocationProfiler extends TickProfiler {
+    private com.sun.management.ThreadMXBean threads;
+
+    /**
+     * Creates a profiler keeping the latest updates.
+     *
+     * @param window The number of latest updates kept for each phase
+     * @throws UnsupportedOperationException If the JVM cannot count allocated bytes
+     */
+    public AllocationProfiler(int window) {
+        super(window);
+        if(!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            throw new UnsupportedOperationException("The JVM cannot count allocated bytes");
+        }
+        threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        if(!threads.isThreadAllocatedMemorySupported()) {
+            throw new UnsupportedOperationException("The JVM cannot count allocated bytes");
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * Returns the number of bytes allocated by the current thread so far.
+     */
+    @Override
+    protected long sample() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
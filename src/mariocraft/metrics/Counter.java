@@ -0,0 +1,41 @@
+package mariocraft.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how many times something has happened. The count may be
+ * changed and read by different threads.
+ * 
+ * @author Sebastian Olsson
+ */
+public class Counter {
+    private final AtomicLong count = new AtomicLong();
+    
+    /**
+     * Adds one to the count.
+     */
+    public void increment() {
+        count.incrementAndGet();
+    }
+    
+    /**
+     * Adds the given number to the count.
+     */
+    public void add(long n) {
+        count.addAndGet(n);
+    }
+    
+    /**
+     * @return The count
+     */
+    public long get() {
+        return count.get();
+    }
+    
+    /**
+     * Sets the count to zero.
+     */
+    public void reset() {
+        count.set(0);
+    }
+}
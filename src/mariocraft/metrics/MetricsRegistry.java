@@ -0,0 +1,94 @@
+package mariocraft.metrics;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds the named metrics of the game: histograms, counters and rates.
+ * Metrics are created once, when first asked for, and can then be
+ * updated every frame without allocating. At shutdown all of them can
+ * be written out.
+ * 
+ * @author Sebastian Olsson
+ */
+public class MetricsRegistry {
+    private static final int HISTOGRAM_CAPACITY = 1024;
+    private static final long RATE_WINDOW = 1000000000L; // One second.
+    private static final int RATE_SLOTS = 10;
+    
+    private LinkedHashMap<String, RollingHistogram> histograms;
+    private LinkedHashMap<String, Counter> counters;
+    private LinkedHashMap<String, WindowedRate> rates;
+    
+    /**
+     * Creates an empty registry.
+     */
+    public MetricsRegistry() {
+        histograms = new LinkedHashMap<String, RollingHistogram>();
+        counters = new LinkedHashMap<String, Counter>();
+        rates = new LinkedHashMap<String, WindowedRate>();
+    }
+    
+    /**
+     * @return The histogram with the given name, created if it does not exist
+     */
+    public RollingHistogram histogram(String name) {
+        RollingHistogram h = histograms.get(name);
+        if(h == null) {
+            h = new RollingHistogram(HISTOGRAM_CAPACITY);
+            histograms.put(name, h);
+        }
+        return h;
+    }
+    
+    /**
+     * Adds a histogram kept by someone else, e.g. a TickProfiler.
+     */
+    public void register(String name, RollingHistogram h) {
+        histograms.put(name, h);
+    }
+    
+    /**
+     * @return The counter with the given name, created if it does not exist
+     */
+    public Counter counter(String name) {
+        Counter c = counters.get(name);
+        if(c == null) {
+            c = new Counter();
+            counters.put(name, c);
+        }
+        return c;
+    }
+    
+    /**
+     * @return The rate over the latest second with the given name, created if it does not exist
+     */
+    public WindowedRate rate(String name) {
+        WindowedRate r = rates.get(name);
+        if(r == null) {
+            r = new WindowedRate(RATE_WINDOW, RATE_SLOTS);
+            rates.put(name, r);
+        }
+        return r;
+    }
+    
+    /**
+     * Writes all metrics, one per line. Histograms are written as their
+     * number of samples, median, 99th percentile and maximum.
+     */
+    public void export(PrintStream out) {
+        long now = System.nanoTime();
+        for(Map.Entry<String, RollingHistogram> e:histograms.entrySet()) {
+            RollingHistogram h = e.getValue();
+            out.println(e.getKey()+" count="+h.getCount()+" p50="+h.getPercentile(50)+
+                        " p99="+h.getPercentile(99)+" max="+h.getMax());
+        }
+        for(Map.Entry<String, Counter> e:counters.entrySet()) {
+            out.println(e.getKey()+" "+e.getValue().get());
+        }
+        for(Map.Entry<String, WindowedRate> e:rates.entrySet()) {
+            out.println(e.getKey()+" "+e.getValue().getRate(now)+"/s");
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package mariocraft.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the latest samples of a value, e.g. a duration in nanoseconds,
+ * and answers questions about their distribution. Recording a sample
+ * never allocates, so it can be done every update.
+ *
+ * One thread may record while another asks, e.g. the update thread and
+ * the render thread. The samples are only touched under a lock, which a
+ * question holds just long enough to copy them. The copy is then sorted
+ * outside the lock, so a slow question never holds up the recording.
+ *
+ * @author Sebastian Olsson
+ */
+public class RollingHistogram {
+    private final Object lock = new Object();  // Guards the samples, next, size and version.
+    private long[] samples;  // Ring buffer of the latest samples.
+    private int next;        // Where the next sample is written.
+    private int size;        // The number of samples kept.
+    private int version;     // Changed by every change to the samples.
+
+    private long[] sorted;   // A sorted copy of the samples, owned by the questions.
+    private int sortedSize;
+    private int sortedVersion;
+
+    /**
+     * Creates a histogram.
+     *
+     * @param capacity The number of latest samples that are kept
+     */
+    public RollingHistogram(int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be > 0.");
+        }
+        samples = new long[capacity];
+        sorted = new long[capacity];
+        sortedVersion = -1;
+    }
+
+    /**
+     * Adds a sample, replacing the oldest one if the histogram is full.
+     */
+    public void record(long value) {
+        synchronized(lock) {
+            samples[next] = value;
+            next++;
+            if(next == samples.length) {
+                next = 0;
+            }
+            if(size < samples.length) {
+                size++;
+            }
+            version++;
+        }
+    }
+
+    /**
+     * Removes all samples.
+     */
+    public void reset() {
+        synchronized(lock) {
+            next = 0;
+            size = 0;
+            version++;
+        }
+    }
+
+    /**
+     * @return The number of samples kept
+     */
+    public int getCount() {
+        synchronized(lock) {
+            return size;
+        }
+    }
+
+    /**
+     * @return The latest sample, or 0 if there is none
+     */
+    public long getLast() {
+        synchronized(lock) {
+            if(size == 0) {
+                return 0;
+            }
+            return samples[next == 0 ? samples.length-1 : next-1];
+        }
+    }
+
+    /**
+     * @param percentile A number from 0 to 100
+     * @return The smallest sample that the given percentage of the samples does not exceed
+     */
+    public synchronized long getPercentile(double percentile) {
+        sort();
+        if(sortedSize == 0) {
+            return 0;
+        }
+        int index = (int)Math.ceil(percentile/100*sortedSize)-1;
+        if(index < 0) {
+            index = 0;
+        } else if(index >= sortedSize) {
+            index = sortedSize-1;
+        }
+        return sorted[index];
+    }
+
+    /**
+     * @return The largest sample, or 0 if there is none
+     */
+    public synchronized long getMax() {
+        sort();
+        if(sortedSize == 0) {
+            return 0;
+        }
+        return sorted[sortedSize-1];
+    }
+
+    /**
+     * @return The mean of the samples, or 0 if there is none
+     */
+    public synchronized double getMean() {
+        sort();
+        if(sortedSize == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for(int i = 0;i < sortedSize;i++) {
+            sum += sorted[i];
+        }
+        return (double)sum/sortedSize;
+    }
+
+    /**
+     * Brings the sorted copy of the samples up to date. Only to be called
+     * while holding the lock of the histogram itself, which keeps two
+     * questions from sorting the copy at the same time.
+     */
+    private void sort() {
+        synchronized(lock) {
+            if(sortedVersion == version) {
+                return;
+            }
+            System.arraycopy(samples, 0, sorted, 0, size);
+            sortedSize = size;
+            sortedVersion = version;
+        }
+        Arrays.sort(sorted, 0, sortedSize);
+    }
+}
@@ -0,0 +1,101 @@
+package mariocraft.metrics;
+
+import mariocraft.model.TickPhase;
+
+/**
+ * Measures how long each phase of a level update takes. The level marks
+ * the end of every phase and the time since the previous mark goes into
+ * the histogram of that phase. A mark costs one call to System.nanoTime(),
+ * so the profiler is always on.
+ * 
+ * @author Sebastian Olsson
+ */
+public class TickProfiler {
+    private static final int DEFAULT_WINDOW = 1024; // About 17 seconds of updates.
+    
+    private RollingHistogram[] phases;
+    private RollingHistogram total;
+    
+    /**
+     * Creates a profiler keeping the latest 1024 updates.
+     */
+    public TickProfiler() {
+        this(DEFAULT_WINDOW);
+    }
+    
+    /**
+     * Creates a profiler.
+     * 
+     * @param window The number of latest updates kept for each phase
+     */
+    public TickProfiler(int window) {
+        phases = new RollingHistogram[TickPhase.values().length];
+        for(int i = 0;i < phases.length;i++) {
+            phases[i] = new RollingHistogram(window);
+        }
+        total = new RollingHistogram(window);
+    }
+    
+    /**
+     * Marks the start of an update.
+     * 
+     * @return The mark to pass to the first call to mark()
+     */
+    public long start() {
+        return sample();
+    }
+    
+    /**
+     * Marks the end of a phase.
+     * 
+     * @param phase The phase that just ended
+     * @param since The mark at the start of the phase
+     * @return The mark at the start of the next phase
+     */
+    public long mark(TickPhase phase, long since) {
+        long now = sample();
+        phases[phase.ordinal()].record(now-since);
+        return now;
+    }
+    
+    /**
+     * Marks the end of an update.
+     * 
+     * @param start The mark returned by start()
+     */
+    public void end(long start) {
+        total.record(sample()-start);
+    }
+    
+    /**
+     * Returns the current value of the measured quantity, by default the
+     * time in nanoseconds.
+     */
+    protected long sample() {
+        return System.nanoTime();
+    }
+    
+    /**
+     * @return The latest measurements of the given phase
+     */
+    public RollingHistogram getHistogram(TickPhase phase) {
+        return phases[phase.ordinal()];
+    }
+    
+    /**
+     * @return The latest measurements of whole updates
+     */
+    public RollingHistogram getTotal() {
+        return total;
+    }
+    
+    /**
+     * Removes all measurements.
+     */
+    public void reset() {
+        for(RollingHistogram phase:phases) {
+            phase.reset();
+        }
+        total.reset();
+    }
+}
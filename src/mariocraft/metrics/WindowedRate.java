@@ -0,0 +1,116 @@
+package mariocraft.metrics;
+
+/**
+ * Measures how many times per second something happens, counting only
+ * the latest window of time. The window is divided into slots that are
+ * reused as time passes, so marking an event never allocates.
+ * 
+ * One thread may mark events while another asks for the rate, e.g. the
+ * update thread and the render thread. Both hold the lock of the rate.
+ * 
+ * @author Sebastian Olsson
+ */
+public class WindowedRate {
+    private long slotNanos;
+    private long[] counts;   // Events in each slot.
+    private long[] slotIds;  // Which period of time each slot currently counts.
+    private long firstId;    // The slot of the first event.
+    private boolean started;
+    
+    /**
+     * Creates a rate.
+     * 
+     * @param windowNanos The length of the window in nanoseconds
+     * @param slots The number of slots that the window is divided into
+     */
+    public WindowedRate(long windowNanos, int slots) {
+        if(slots <= 0 || windowNanos < slots) {
+            throw new IllegalArgumentException("The window should have at least one nanosecond per slot.");
+        }
+        slotNanos = windowNanos/slots;
+        counts = new long[slots];
+        slotIds = new long[slots];
+    }
+    
+    /**
+     * Registers that an event happened.
+     * 
+     * @param now The current time in nanoseconds, as given by System.nanoTime()
+     */
+    public void mark(long now) {
+        mark(now, 1);
+    }
+    
+    /**
+     * Registers that a number of events happened.
+     * 
+     * @param now The current time in nanoseconds, as given by System.nanoTime()
+     * @param n The number of events
+     */
+    public synchronized void mark(long now, long n) {
+        long id = slotId(now);
+        int i = floorMod(id, counts.length);
+        if(!started) {
+            firstId = id;
+            started = true;
+        }
+        if(slotIds[i] != id) {
+            slotIds[i] = id;
+            counts[i] = 0;
+        }
+        counts[i] += n;
+    }
+    
+    /**
+     * Returns the number of events per second during the latest window.
+     * Until a whole window has passed, the rate is taken over the time
+     * since the first event.
+     * 
+     * @param now The current time in nanoseconds, as given by System.nanoTime()
+     * @return Events per second
+     */
+    public synchronized double getRate(long now) {
+        if(!started) {
+            return 0;
+        }
+        long id = slotId(now);
+        long oldest = id-counts.length+1;
+        long sum = 0;
+        for(int i = 0;i < counts.length;i++) {
+            if(slotIds[i] >= oldest && slotIds[i] <= id) {
+                sum += counts[i];
+            }
+        }
+        long slots = Math.min(counts.length, id-firstId+1);
+        return sum*1000000000.0/(slots*slotNanos);
+    }
+    
+    /**
+     * Returns the period of time that a point in time falls in. The origin
+     * of System.nanoTime() is arbitrary, so the time may be negative.
+     */
+    private long slotId(long now) {
+        return floorDiv(now, slotNanos);
+    }
+    
+    /**
+     * Divides, rounding towards negative infinity, like Math.floorDiv
+     * of Java 8.
+     */
+    private static long floorDiv(long a, long b) {
+        long q = a/b;
+        if((a%b != 0) && ((a < 0) != (b < 0))) {
+            q--;
+        }
+        return q;
+    }
+    
+    /**
+     * Returns the remainder of a floor division, from 0 to n-1, like
+     * Math.floorMod of Java 8.
+     */
+    private static int floorMod(long a, int n) {
+        long m = a%n;
+        return (int)(m < 0 ? m+n : m);
+    }
+}
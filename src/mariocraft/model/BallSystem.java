@@ -0,0 +1,463 @@
+package mariocraft.model;
+
+import java.awt.Dimension;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+
+import mariocraft.geom.Vector2D;
+import mariocraft.util.AnimationUtil;
+
+/**
+ * The balls of a level. They bounce against the blocks in the level at a
+ * constant pace and are deadly on contact.
+ * <p>
+ * A level may hold thousands of balls, so they are not kept as objects of
+ * their own but as parallel arrays, one element per ball: the positions,
+ * velocities, sizes and animation counters each lie in one array that the
+ * updates go through from start to end. Ball i is the i:th element of
+ * every array. The balls are also kept sorted by their left edges, like
+ * in a SweepAndPrune, so that the balls near a rectangle can be found
+ * quickly.
+ *
+ * @author Sebastian Olsson
+ */
+public class BallSystem {
+    private static final int FRAMES = 4;    // The number of images in the animation of a ball.
+
+    private int size;
+    private float[] x;          // Top left corners.
+    private float[] y;
+    private float[] width;
+    private float[] height;
+    private float[] vx;         // Velocities.
+    private float[] vy;
+    private float[] preX;       // Top left corners before the latest update.
+    private float[] preY;
+    private int[] frame;        // The image of the animation shown.
+    private int[] lastUpdate;   // The number of the latest update of the level that moved the ball.
+    private Random[] random;    // Decides the directions in which the ball bounces.
+    private BufferedImage[][] images;
+    private float[] left;       // Left edges, in the sorted order.
+    private int[] order;        // The balls, sorted by their left edges.
+    private float widest;
+    private boolean added;      // Balls have been added since the latest refit.
+
+    /**
+     * Creates a system without balls.
+     */
+    public BallSystem() {
+        x = new float[16];
+        y = new float[16];
+        width = new float[16];
+        height = new float[16];
+        vx = new float[16];
+        vy = new float[16];
+        preX = new float[16];
+        preY = new float[16];
+        frame = new int[16];
+        lastUpdate = new int[16];
+        random = new Random[16];
+        images = new BufferedImage[16][];
+        left = new float[16];
+        order = new int[16];
+    }
+
+    /**
+     * Adds a ball. It is not found by findNear() until refit() has been
+     * called, which should be done once all balls have been added.
+     *
+     * @param midX x-coordinate for the middle of the ball
+     * @param midY y-coordinate for the middle of the ball
+     * @param width Ball width in pixels
+     * @param height Ball height in pixels
+     * @param velocity The velocity of the ball
+     * @param random Decides the directions in which the ball bounces
+     * @return The index of the ball
+     */
+    public int add(float midX, float midY, float width, float height, Vector2D velocity, Random random) {
+        if(size == x.length) {
+            grow();
+        }
+        int i = size;
+        x[i] = midX-width/2;
+        y[i] = midY-height/2;
+        this.width[i] = width;
+        this.height[i] = height;
+        vx[i] = velocity.x;
+        vy[i] = velocity.y;
+        preX[i] = x[i];
+        preY[i] = y[i];
+        this.random[i] = random;
+        if(i > 0 && this.width[i-1] == width && this.height[i-1] == height) {
+            images[i] = images[i-1];
+        } else {
+            images[i] = AnimationUtil.resizedImages(Images.BALL, new Dimension((int)width, (int)height))[0];
+        }
+        order[i] = i;
+        size++;
+        added = true;
+        return i;
+    }
+
+    /**
+     * @return The number of balls
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sorts the balls again after they have moved. They only move a little
+     * in an update, so an insertion sort is close to linear. After balls
+     * have been added, they are sorted from scratch instead.
+     */
+    public void refit() {
+        if(added) {
+            sortAll();
+            added = false;
+        }
+        widest = 0;
+        for(int k = 0;k < size;k++) {
+            left[k] = x[order[k]];
+            widest = Math.max(widest, width[order[k]]);
+        }
+        for(int k = 1;k < size;k++) {
+            float l = left[k];
+            int i = order[k];
+            int j = k-1;
+            while(j >= 0 && left[j] > l) {
+                left[j+1] = left[j];
+                order[j+1] = order[j];
+                j--;
+            }
+            left[j+1] = l;
+            order[j+1] = i;
+        }
+    }
+
+    /**
+     * Sorts the balls by their left edges, the balls with equal edges in
+     * the order they were added.
+     */
+    private void sortAll() {
+        long[] keys = new long[size];
+        for(int i = 0;i < size;i++) {
+            int bits = Float.floatToIntBits(x[i]);
+            bits ^= (bits >> 31) & 0x7fffffff;  // Negative floats now compare like ints too.
+            keys[i] = ((long)bits << 32) | i;
+        }
+        Arrays.sort(keys);
+        for(int k = 0;k < size;k++) {
+            order[k] = (int)keys[k];
+        }
+    }
+
+    /**
+     * Finds the balls that intersect or touch a rectangle.
+     *
+     * @param x The left edge of the rectangle
+     * @param y The top edge of the rectangle
+     * @param w The width of the rectangle
+     * @param h The height of the rectangle
+     * @param out Where to put the indices of the balls, with room for all of them
+     * @return The number of balls found
+     */
+    public int findNear(float x, float y, float w, float h, int[] out) {
+        int count = 0;
+        for(int k = firstLeftOf(x-widest);k < size && left[k] <= x+w;k++) {
+            int i = order[k];
+            if(this.x[i]+width[i] >= x && this.y[i] <= y+h && this.y[i]+height[i] >= y) {
+                out[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns true if and only if ball i and a rectangle delimit a common area.
+     */
+    public boolean intersects(int i, float x, float y, float w, float h) {
+        if(w <= 0 || h <= 0 || width[i] <= 0 || height[i] <= 0) {
+            return false;
+        }
+        // Compared in double precision, like Rectangle2D does.
+        return (double)x+w > this.x[i] && (double)y+h > this.y[i]
+            && x < (double)this.x[i]+width[i] && y < (double)this.y[i]+height[i];
+    }
+
+    /**
+     * Remembers the current locations of some balls as their previous
+     * locations. Should be called once at the start of every update.
+     *
+     * @param balls The indices of the balls
+     * @param count The number of balls
+     */
+    public void updatePreLocations(int[] balls, int count) {
+        for(int k = 0;k < count;k++) {
+            int i = balls[k];
+            preX[i] = x[i];
+            preY[i] = y[i];
+        }
+    }
+
+    /**
+     * Finds a group of balls that lie close together, and the area that
+     * they may reach in an update: the smallest rectangle around each of
+     * them grown by its speed on every side. A bounce turns the velocity
+     * of a ball a little, so it may go further along an axis than its
+     * velocity did at the start of the update, but never further than its
+     * speed.
+     * <p>
+     * The group starts with the first of the balls and takes in the balls
+     * after it for as long as the area of the group is no larger than the
+     * areas of its balls put together, so that searching it once costs no
+     * more than searching around each ball. Balls given in the order
+     * findNear() finds them are sorted by their left edges, so a crowd of
+     * balls ends up in one group.
+     *
+     * @param balls The indices of the balls
+     * @param from Where in balls the group starts
+     * @param count The number of balls
+     * @param out Where to put the area
+     * @return Where in balls the group ends
+     */
+    public int findGroup(int[] balls, int from, int count, Rectangle2D.Float out) {
+        float left = Float.POSITIVE_INFINITY;
+        float top = Float.POSITIVE_INFINITY;
+        float right = Float.NEGATIVE_INFINITY;
+        float bottom = Float.NEGATIVE_INFINITY;
+        float areas = 0;
+        int k = from;
+        for(;k < count;k++) {
+            int i = balls[k];
+            float reach = getSpeed(i);
+            float l = Math.min(left, x[i]-reach);
+            float t = Math.min(top, y[i]-reach);
+            float r = Math.max(right, x[i]+width[i]+reach);
+            float b = Math.max(bottom, y[i]+height[i]+reach);
+            float area = (width[i]+2*reach)*(height[i]+2*reach);
+            if(k > from && (r-l)*(b-t) > areas+area) {
+                break;
+            }
+            areas += area;
+            left = l;
+            top = t;
+            right = r;
+            bottom = b;
+        }
+        out.setRect(left, top, right-left, bottom-top);
+        return k;
+    }
+
+    /**
+     * Moves the animations of some balls on to their next images.
+     *
+     * @param balls The indices of the balls
+     * @param count The number of balls
+     */
+    public void updateAnimations(int[] balls, int count) {
+        for(int k = 0;k < count;k++) {
+            updateAnimation(balls[k]);
+        }
+    }
+
+    /**
+     * Moves the animation of ball i on to its next image.
+     */
+    public void updateAnimation(int i) {
+        frame[i]++;
+        if(frame[i] == FRAMES) {
+            frame[i] = 0;
+        }
+    }
+
+    /**
+     * Makes ball i bounce horizontally.
+     */
+    public void bounceHorizontally(int i) {
+        vx[i] = -vx[i];
+        tweakDirection(i);
+    }
+
+    /**
+     * Makes ball i bounce vertically.
+     */
+    public void bounceVertically(int i) {
+        vy[i] = -vy[i];
+        tweakDirection(i);
+    }
+
+    /**
+     * Rotates the velocity of ball i slightly and randomly.
+     */
+    private void tweakDirection(int i) {
+        float angle = Vector2D.arg(vx[i], vy[i])+(float)(Math.PI/30*(random[i].nextFloat()-0.5));
+        float norm = (float)Math.sqrt(vx[i]*vx[i]+vy[i]*vy[i]);
+        vx[i] = (float)(norm*Math.cos(angle));
+        vy[i] = (float)(norm*Math.sin(angle));
+    }
+
+    /**
+     * Sets the location of the top left corner of ball i.
+     */
+    public void setLocation(int i, float x, float y) {
+        this.x[i] = x;
+        this.y[i] = y;
+    }
+
+    /**
+     * Sets the velocity of ball i.
+     */
+    public void setVelocity(int i, float vx, float vy) {
+        this.vx[i] = vx;
+        this.vy[i] = vy;
+    }
+
+    /**
+     * @return The speed of ball i, which a bounce does not change
+     */
+    public float getSpeed(int i) {
+        return (float)Math.sqrt(vx[i]*vx[i]+vy[i]*vy[i]);
+    }
+
+    /**
+     * @return The left edge of ball i
+     */
+    public float getX(int i) {
+        return x[i];
+    }
+
+    /**
+     * @return The top edge of ball i
+     */
+    public float getY(int i) {
+        return y[i];
+    }
+
+    /**
+     * @return The width of ball i
+     */
+    public float getWidth(int i) {
+        return width[i];
+    }
+
+    /**
+     * @return The height of ball i
+     */
+    public float getHeight(int i) {
+        return height[i];
+    }
+
+    /**
+     * @return The x-component of the velocity of ball i
+     */
+    public float getVelocityX(int i) {
+        return vx[i];
+    }
+
+    /**
+     * @return The y-component of the velocity of ball i
+     */
+    public float getVelocityY(int i) {
+        return vy[i];
+    }
+
+    /**
+     * @return The left edge of ball i before the latest update
+     */
+    public float getPreviousX(int i) {
+        return preX[i];
+    }
+
+    /**
+     * @return The top edge of ball i before the latest update
+     */
+    public float getPreviousY(int i) {
+        return preY[i];
+    }
+
+    /**
+     * @return The number of the image that ball i currently looks like
+     */
+    public int getFrame(int i) {
+        return frame[i];
+    }
+
+    /**
+     * @return The image that ball i currently looks like
+     */
+    public BufferedImage getImage(int i) {
+        return images[i][frame[i]];
+    }
+
+    /**
+     * @return The number of the latest update of the level that moved ball i
+     */
+    public int getLastUpdate(int i) {
+        return lastUpdate[i];
+    }
+
+    /**
+     * Remembers the number of the latest update of the level that moved ball i.
+     */
+    public void setLastUpdate(int i, int tick) {
+        lastUpdate[i] = tick;
+    }
+
+    /**
+     * Returns the first place in the sorted order where the left edge is
+     * at least x.
+     */
+    private int firstLeftOf(float x) {
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int mid = (low+high) >>> 1;
+            if(left[mid] < x) {
+                low = mid+1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Doubles the room for balls.
+     */
+    private void grow() {
+        int n = x.length*2;
+        x = copyOf(x, n);
+        y = copyOf(y, n);
+        width = copyOf(width, n);
+        height = copyOf(height, n);
+        vx = copyOf(vx, n);
+        vy = copyOf(vy, n);
+        preX = copyOf(preX, n);
+        preY = copyOf(preY, n);
+        left = copyOf(left, n);
+        frame = copyOf(frame, n);
+        lastUpdate = copyOf(lastUpdate, n);
+        order = copyOf(order, n);
+        Random[] newRandom = new Random[n];
+        System.arraycopy(random, 0, newRandom, 0, size);
+        random = newRandom;
+        BufferedImage[][] newImages = new BufferedImage[n][];
+        System.arraycopy(images, 0, newImages, 0, size);
+        images = newImages;
+    }
+
+    private float[] copyOf(float[] a, int n) {
+        float[] b = new float[n];
+        System.arraycopy(a, 0, b, 0, size);
+        return b;
+    }
+
+    private int[] copyOf(int[] a, int n) {
+        int[] b = new int[n];
+        System.arraycopy(a, 0, b, 0, size);
+        return b;
+    }
+}
@@ -1,8 +1,5 @@
 package mariocraft.model;
 
-import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 
@@ -17,14 +14,11 @@ import mariocraft.util.ImageUtil;
  * @author Sebastian Olsson
  * @version 2011-05-05
  */
-@SuppressWarnings("serial")
 public class Block extends Entity
                    implements Corporal {
     
-    private static BufferedImage image = Images.BLOCK;
-    private static boolean imageResized = false;
-    
-    private Point2D.Float relativeLocation;
+    private static BufferedImage resized; // The image at the size of the latest block created.
+    private BufferedImage image;
     
     /**
      * Creates a static block.
@@ -45,20 +39,7 @@ public class Block extends Entity
      */
     public Block(float x, float y, float width, float height) {
         super(x, y, width, height);
-        if(!imageResized) {
-            image = ImageUtil.resize(image, (int)width, (int)height);
-            imageResized = true;
-        }
-        relativeLocation = new Point2D.Float(0,0);
-    }
-    
-    /**
-     * Sets the relative coordinates.
-     * 
-     * @param subjective The location of the protagonist
-     */
-    public void setRelativeLocation(Point2D.Float subjective) {
-        relativeLocation.setLocation(getCenterX()-subjective.x, getCenterY()-subjective.y);
+        image = getResizedImage((int)width, (int)height);
     }
     
     /**
@@ -70,22 +51,22 @@ public class Block extends Entity
     }
     
     /**
-     * Puts the block image into an unresized state. 
+     * Returns the block image at the given size. It is only resized when
+     * the size differs from that of the latest block created, which may
+     * be on a thread loading another level.
      */
-    public static void unresize() {
-        imageResized = false;
+    static synchronized BufferedImage getResizedImage(int width, int height) {
+        if(resized == null || resized.getWidth() != width || resized.getHeight() != height) {
+            resized = ImageUtil.resize(Images.BLOCK, width, height);
+        }
+        return resized;
     }
     
     /**
-     * Draws the block.
+     * @return The image of the block
      */
     @Override
-    public void paint(Graphics g) {
-        int topLeftX = (int)(relativeLocation.x-getRectangleWidth()/2);
-        int topLeftY = (int)(relativeLocation.y-getRectangleHeight()/2);
-        ((Graphics2D)g).drawImage(image,
-                                  null,
-                                  600+topLeftX,
-                                  400+topLeftY);
+    public BufferedImage getImage() {
+        return image;
     }
 }
@@ -1,61 +1,149 @@
 package mariocraft.model;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.awt.*;
-import java.awt.geom.Point2D;
-
-import mariocraft.ui.ScreenController;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 
 /**
  * A class for controlling the blocks and boulders in the game
- * (boulders are liftable blocks).
+ * (boulders are liftable blocks). They are kept in a grid of cells
+ * the size of a block, each block in the cell of its center, so that
+ * only the cells near a rectangle have to be looked at to find what
+ * it may collide with. The walls of the map are not blocks but tiles:
+ * one byte per cell tells whether the cell is solid. For collisions the
+ * solid tiles are merged into as large rectangles as can be found, so
+ * that a long floor is one collider instead of one per tile.
  * @author Erik
  *
  */
 public class BlockManager {
 	
-	private LinkedList<Block>[] blocks;
-	private LinkedList<Boulder>[] boulders;
+	private int columns;
+	private int rows;
 	private float blockSize;
 	
+	private static final byte SOLID = 1;
+	private byte[] tiles;		// SOLID where the cell is a wall, otherwise 0
+	private BufferedImage tileImage;
+	
+	/*
+	 * The merged rectangles of solid tiles, in cells. A cell that is not
+	 * in a rectangle collides as a tile of its own.
+	 */
+	private int[] rectOf;		// The rectangle of each cell, or -1
+	private int[] rectColumn;	// The left column of each rectangle
+	private int[] rectRow;		// The top row of each rectangle
+	private int[] rectColumns;	// The width of each rectangle
+	private int[] rectRows;		// The height of each rectangle
+	private int rects;			// The number of rectangles
+	
+	/*
+	 * The blocks and boulders are kept in slots. The slots in a cell are
+	 * linked together by their indices, starting at the head of the cell.
+	 * -1 ends a list.
+	 */
+	private int[] heads;		// The first slot of each cell
+	private Entity[] slots;
+	private int[] next;			// The next slot in the same cell, or in the free list
+	private int free;			// The first unused slot
+	private int used;			// The number of slots ever used
+	
 	/**
-     * Create a new BlockManager with the specified level width.
-     * @param length
+     * Create a new BlockManager for a level of the specified size in blocks.
+     * @param columns The width of the level
+     * @param rows The height of the level
+     * @param blockSize The size of a block
      */
-	@SuppressWarnings("unchecked")
-	public BlockManager(int length, float blockSize) {
-		blocks = new LinkedList[length];
-		boulders = new LinkedList[length];
-		for (int i = 0; i < length; i++) {
-			blocks[i] = new LinkedList<Block>();
-			boulders[i] = new LinkedList<Boulder>();
-		}
+	public BlockManager(int columns, int rows, float blockSize) {
+		this.columns = columns;
+		this.rows = rows;
 		this.blockSize = blockSize;
+		tiles = new byte[columns * rows];
+		rectOf = new int[columns * rows];
+		for (int i = 0; i < rectOf.length; i++) {
+			rectOf[i] = -1;
+		}
+		rectColumn = new int[16];
+		rectRow = new int[16];
+		rectColumns = new int[16];
+		rectRows = new int[16];
+		tileImage = Block.getResizedImage((int) blockSize, (int) blockSize);
+		heads = new int[columns * rows];
+		for (int i = 0; i < heads.length; i++) {
+			heads[i] = -1;
+		}
+		slots = new Entity[64];
+		next = new int[64];
+		free = -1;
+	}
+	
+	/**
+     * Makes the tile in the specified column and row solid. The tiles are
+     * added while the map is read, and each collides on its own until
+     * mergeTiles() has been called.
+     * @param column
+     * @param row
+     */
+	public void addTile(int column, int row) {
+		tiles[row * columns + column] = SOLID;
+	}
+	
+	/**
+     * Merges all the solid tiles into rectangles. Should be called once
+     * the tiles of a map have been added. The tiles never change while
+     * the level is played, so they are only merged when it is built.
+     * Each rectangle is made as wide as it can be, then as high as it
+     * can be at that width.
+     */
+	public void mergeTiles() {
+		for (int i = 0; i < rectOf.length; i++) {
+			rectOf[i] = -1;
+		}
+		rects = 0;
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < columns; col++) {
+				if (!isFree(col, row)) {
+					continue;
+				}
+				int width = 1;
+				while (col + width < columns && isFree(col + width, row)) {
+					width++;
+				}
+				int height = 1;
+				while (row + height < rows && isFreeRow(col, row + height, width)) {
+					height++;
+				}
+				int rect = newRect(col, row, width, height);
+				for (int r = row; r < row + height; r++) {
+					for (int c = col; c < col + width; c++) {
+						rectOf[r * columns + c] = rect;
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+     * Returns the number of rectangles that the solid tiles are merged into.
+     * @return the number of rectangles
+     */
+	public int getMergedTileCount() {
+		return rects;
 	}
 	
 	/**
-     * Adds a block at the specified index in the map. The absolute
-     * position on the map is determined by the index and the block size.
+     * Adds a block at its position in the map.
      * @param b The block to add
-     * @param index The index
      */
-	public void addBlockAtIndex(Block b, int index) {
-	    if (indexInRange(index)) {
-	        blocks[index].add(b);
-        }
+	public void addBlock(Block b) {
+		add(b);
 	}
 	
     /**
-     * Adds a boulder at the specified index in the map. The absolute
-     * position on the map is determined by the index and the block size.
+     * Adds a boulder at its position in the map.
      * @param b The boulder to add
-     * @param index The index
      */
-	public void addBoulderAtIndex(Boulder b, int index) {
-	    if (indexInRange(index)) {
-	        boulders[index].add(b);
-	    }
+	public void addBoulder(Boulder b) {
+		add(b);
 	}
 	
     /**
@@ -64,8 +152,7 @@ public class BlockManager {
      * @param ypos
      */
     public void addBoulderAtPos(int xpos, int ypos) {
-        int index = (int)(xpos/blockSize);
-        addBoulderAtIndex(new Boulder(xpos, ypos, blockSize, blockSize), index);
+        addBoulder(new Boulder(xpos, ypos, blockSize, blockSize));
     }
 	
     /**
@@ -75,12 +162,8 @@ public class BlockManager {
      * @return The block at the position
      */
 	public Block getBlockAtPos(float xpos, float ypos) {
-		for (Block b : getBlocksAt(xpos)) {
-			if (b.getRectangle().contains(xpos, ypos)) {
-				return b;
-			}
-		}
-		return null;
+		int slot = find(xpos, ypos, false);
+		return slot == -1 ? null : (Block) slots[slot];
 	}
 	
     /**
@@ -90,12 +173,8 @@ public class BlockManager {
      * @return The boulder at the position
      */
 	public Boulder getBoulderAtPos(float xpos, float ypos) {
-	    for (Boulder b : getBouldersAt(xpos)) {
-	        if (b.getRectangle().contains(xpos, ypos)) {
-	            return b;
-	        }
-	    }
-	    return null;
+		int slot = find(xpos, ypos, true);
+		return slot == -1 ? null : (Boulder) slots[slot];
 	}
 	
 	/**
@@ -105,92 +184,242 @@ public class BlockManager {
      * @return The boulder at the position
      */
 	public Boulder popBoulderAtPos(float xpos, float ypos) {
-	    Boulder sought = null;
-	    int index = (int)(xpos/blockSize);
-	    for(int i = index-1;i <= index+1;i++) {
-	        if (indexInRange(i)) {
-    	        LinkedList<Boulder> boulderList = boulders[i];
-    	        Iterator<Boulder> it = boulderList.iterator();
-    	        while(it.hasNext()) {
-    	            Boulder boulder = it.next();
-    	            if(boulder.getRectangle().contains(xpos, ypos)) {
-    	                sought = boulder;
-    	                it.remove();
-    	                i = index+1;
-    	                break;
-    	            }
-    	        }
-	        }
-	    }
-	    return sought;
-    }
+		int slot = find(xpos, ypos, true);
+		if (slot == -1) {
+			return null;
+		}
+		Boulder b = (Boulder) slots[slot];
+		remove(slot, cellOf(b.getCenterX(), b.getCenterY()));
+		return b;
+	}
 	
-    /**
-     * Returns all the blocks at the specified x position
-     * @param xpos
-     * @return All the blocks at xpos
-     */
-	public LinkedList<Block> getBlocksAt(float xpos) {
-		int index = (int) (xpos/blockSize);
-		LinkedList<Block> total = new LinkedList<Block>();
-		for (int i = -2; i < 3; i++) { // How many blocks ahead are we looking at? Depends on the protagonist's size relative the block size
-			if (indexInRange(index + i)) {
-				total.addAll(blocks[index + i]);
+	/**
+	 * Returns the size of a block
+	 * @return the size of a block
+	 */
+	public float getBlockSize() {
+		return blockSize;
+	}
+	
+	/**
+	 * Finds the tiles, blocks and boulders that intersect or touch the
+	 * specified rectangle and puts them in the buffer, which is
+	 * cleared first. Tiles are put in the buffer without an entity,
+	 * each rectangle of merged tiles once.
+	 * @param x The left edge of the rectangle
+	 * @param y The top edge of the rectangle
+	 * @param w The width of the rectangle
+	 * @param h The height of the rectangle
+	 * @param out The buffer to put the tiles, blocks and boulders in
+	 */
+	public void getCollidersIn(float x, float y, float w, float h, ColliderBuffer out) {
+		out.clear();
+		// A block may stick out half a block from its cell
+		int col0 = column(x - blockSize/2);
+		int col1 = column(x + w + blockSize/2);
+		int row0 = row(y - blockSize/2);
+		int row1 = row(y + h + blockSize/2);
+		for (int row = row0; row <= row1; row++) {
+			for (int col = col0; col <= col1; col++) {
+				int cell = row * columns + col;
+				for (int slot = heads[cell]; slot != -1; slot = next[slot]) {
+					Entity e = slots[slot];
+					Rectangle2D.Float r = e.getRectangle();
+					if (r.x <= x + w && r.x + r.width >= x && r.y <= y + h && r.y + r.height >= y) {
+						out.add(e);
+					}
+				}
+				int rect = rectOf[cell];
+				if (rect != -1) {
+					// A rectangle is added at the first of its cells that is looked at
+					if (col == Math.max(rectColumn[rect], col0) && row == Math.max(rectRow[rect], row0)) {
+						addTouching(rectColumn[rect], rectRow[rect], rectColumns[rect], rectRows[rect], x, y, w, h, out);
+					}
+				} else if (tiles[cell] == SOLID) {
+					addTouching(col, row, 1, 1, x, y, w, h, out);
+				}
 			}
 		}
-		return total;
 	}
 	
     /**
-     * Returns all the boulders at the specified x position
-     * @param xpos
-     * @return All the boulders at xpos
+     * Adds all the tiles, blocks and boulders within the specified
+     * rectangle to a snapshot.
+     * @param s The snapshot
+     * @param xstart The left edge of the rectangle
+     * @param ystart The top edge of the rectangle
+     * @param xstop The right edge of the rectangle
+     * @param ystop The bottom edge of the rectangle
      */
-	public LinkedList<Boulder> getBouldersAt(float xpos) {
-        int index = (int) (xpos/blockSize);
-        LinkedList<Boulder> total = new LinkedList<Boulder>();
-        for (int i = -2; i < 3; i++) { // How many boulders ahead are we looking at? Depends on the protagonist's size relative the boulder size
-            if (indexInRange(index + i)) {
-                total.addAll(boulders[index + i]);
-            }
-        }
-        return total;
-    }
+	void snapshot(LevelSnapshot s, int xstart, int ystart, int xstop, int ystop) {
+		int col0 = column(xstart - blockSize/2);
+		int col1 = column(xstop + blockSize/2);
+		int row0 = row(ystart - blockSize/2);
+		int row1 = row(ystop + blockSize/2);
+		for (int row = row0; row <= row1; row++) {
+			for (int col = col0; col <= col1; col++) {
+				int cell = row * columns + col;
+				if (tiles[cell] == SOLID) {
+					s.add(tileImage, col * blockSize, row * blockSize);
+				}
+				for (int slot = heads[cell]; slot != -1; slot = next[slot]) {
+					s.add(slots[slot]);
+				}
+			}
+		}
+	}
 	
-    /**
-     * Paints all the block from the specified start position and
-     * one screen length forward.
-     * @param g The draw graphics
-     * @param xstart The start x position
-     * @param protPos The position of the protagonist
-     */
-	public void paint(Graphics g, int xstart, Point2D.Float protPos) {
-		int xstop = xstart + ScreenController.SCREEN_WIDTH;
-		
-		int start = (int)(xstart/blockSize);
-		int stop = (int)(xstop/blockSize) + 2;
-		if (start < 0) {
-			start = 0;
+	/*
+	 * Add a rectangle of cells to the buffer if it intersects or touches
+	 * the rectangle x, y, w, h
+	 */
+	private void addTouching(int col, int row, int cols, int rows, float x, float y, float w, float h, ColliderBuffer out) {
+		float tx = col * blockSize;
+		float ty = row * blockSize;
+		float tw = cols * blockSize;
+		float th = rows * blockSize;
+		if (tx <= x + w && tx + tw >= x && ty <= y + h && ty + th >= y) {
+			out.add(tx, ty, tw, th);
 		}
-		if (stop >= blocks.length) {
-			stop = blocks.length - 1;
+	}
+	
+	/*
+	 * Return true if the tile is solid and not in a rectangle
+	 */
+	private boolean isFree(int col, int row) {
+		int cell = row * columns + col;
+		return tiles[cell] == SOLID && rectOf[cell] == -1;
+	}
+	
+	private boolean isFreeRow(int col, int row, int width) {
+		for (int c = col; c < col + width; c++) {
+			if (!isFree(c, row)) {
+				return false;
+			}
 		}
-		for (int i = start; i <= stop; i++) {
-			for (Block b : blocks[i]) {
-				b.setRelativeLocation(protPos);
-				b.paint(g);
+		return true;
+	}
+	
+	private int newRect(int col, int row, int width, int height) {
+		if (rects == rectColumn.length) {
+			growRects();
+		}
+		int rect = rects++;
+		rectColumn[rect] = col;
+		rectRow[rect] = row;
+		rectColumns[rect] = width;
+		rectRows[rect] = height;
+		return rect;
+	}
+	
+	private void growRects() {
+		int n = rectColumn.length * 2;
+		rectColumn = copyOf(rectColumn, n);
+		rectRow = copyOf(rectRow, n);
+		rectColumns = copyOf(rectColumns, n);
+		rectRows = copyOf(rectRows, n);
+	}
+	
+	private static int[] copyOf(int[] a, int n) {
+		int[] b = new int[n];
+		System.arraycopy(a, 0, b, 0, a.length);
+		return b;
+	}
+	
+	/*
+	 * Put an entity in the cell of its center
+	 */
+	private void add(Entity e) {
+		int slot = free;
+		if (slot != -1) {
+			free = next[slot];
+		} else {
+			if (used == slots.length) {
+				grow();
 			}
-	        for (Boulder b : boulders[i]) {
-	            b.setRelativeLocation(protPos);
-	            b.paint(g);
-	        }
+			slot = used++;
 		}
+		int cell = cellOf(e.getCenterX(), e.getCenterY());
+		slots[slot] = e;
+		next[slot] = heads[cell];
+		heads[cell] = slot;
 	}
 	
-    /**
-     * Determines whether an index is valid
-     */
-	private boolean indexInRange(int index) {
-	    return index >= 0 && index < boulders.length;
+	/*
+	 * Unlink a slot from its cell and put it in the free list
+	 */
+	private void remove(int slot, int cell) {
+		if (heads[cell] == slot) {
+			heads[cell] = next[slot];
+		} else {
+			int prev = heads[cell];
+			while (next[prev] != slot) {
+				prev = next[prev];
+			}
+			next[prev] = next[slot];
+		}
+		slots[slot] = null;
+		next[slot] = free;
+		free = slot;
+	}
+	
+	/*
+	 * Return the slot of a block, or a boulder if boulder is true,
+	 * containing the position, or -1 if there is none
+	 */
+	private int find(float xpos, float ypos, boolean boulder) {
+		int col0 = column(xpos - blockSize);
+		int col1 = column(xpos + blockSize);
+		int row0 = row(ypos - blockSize);
+		int row1 = row(ypos + blockSize);
+		for (int row = row0; row <= row1; row++) {
+			for (int col = col0; col <= col1; col++) {
+				for (int slot = heads[row * columns + col]; slot != -1; slot = next[slot]) {
+					Entity e = slots[slot];
+					if ((e instanceof Boulder) == boulder && e.getRectangle().contains(xpos, ypos)) {
+						return slot;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+	
+	/*
+	 * Double the number of slots
+	 */
+	private void grow() {
+		Entity[] newSlots = new Entity[slots.length * 2];
+		int[] newNext = new int[slots.length * 2];
+		System.arraycopy(slots, 0, newSlots, 0, slots.length);
+		System.arraycopy(next, 0, newNext, 0, next.length);
+		slots = newSlots;
+		next = newNext;
+	}
+	
+	/*
+	 * Return the cell containing the position. Positions outside the
+	 * level belong to the nearest cell on its edge.
+	 */
+	private int cellOf(float xpos, float ypos) {
+		return row(ypos) * columns + column(xpos);
+	}
+	
+	private int column(float xpos) {
+		return clamp((int) Math.floor(xpos / blockSize), columns);
+	}
+	
+	private int row(float ypos) {
+		return clamp((int) Math.floor(ypos / blockSize), rows);
+	}
+	
+	private static int clamp(int index, int length) {
+		if (index < 0) {
+			return 0;
+		}
+		if (index >= length) {
+			return length - 1;
+		}
+		return index;
 	}
 }
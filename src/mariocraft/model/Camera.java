@@ -0,0 +1,82 @@
+package mariocraft.model;
+
+import java.awt.Graphics;
+
+/**
+ * The view of a level on the screen. The camera looks at a point of the
+ * level, which is shown in the middle of the screen. Applying the camera
+ * to a graphics context lets everything in the level be drawn at its
+ * level coordinates.
+ *
+ * @author Sebastian Olsson
+ */
+public class Camera {
+    private int screenWidth;
+    private int screenHeight;
+    private int left;   // The level coordinates of the top left corner of the screen.
+    private int top;
+
+    /**
+     * Sets the size of the screen.
+     *
+     * @param width Screen width in pixels
+     * @param height Screen height in pixels
+     */
+    public void setScreenSize(int width, int height) {
+        screenWidth = width;
+        screenHeight = height;
+    }
+
+    /**
+     * Moves the camera so that a point of the level is shown in the middle of the screen.
+     *
+     * @param x x-coordinate of the point
+     * @param y y-coordinate of the point
+     */
+    public void lookAt(float x, float y) {
+        left = (int)x-screenWidth/2;
+        top = (int)y-screenHeight/2;
+    }
+
+    /**
+     * @return The x-coordinate of the level at the left edge of the screen
+     */
+    public int getLeft() {
+        return left;
+    }
+
+    /**
+     * @return The y-coordinate of the level at the top edge of the screen
+     */
+    public int getTop() {
+        return top;
+    }
+
+    /**
+     * @return Screen width in pixels
+     */
+    public int getScreenWidth() {
+        return screenWidth;
+    }
+
+    /**
+     * @return Screen height in pixels
+     */
+    public int getScreenHeight() {
+        return screenHeight;
+    }
+
+    /**
+     * Makes a graphics context draw in level coordinates.
+     */
+    public void apply(Graphics g) {
+        g.translate(-left, -top);
+    }
+
+    /**
+     * Makes a graphics context the camera was applied to draw in screen coordinates again.
+     */
+    public void restore(Graphics g) {
+        g.translate(left, top);
+    }
+}
@@ -0,0 +1,190 @@
+package mariocraft.model;
+
+import java.awt.geom.Rectangle2D;
+
+import mariocraft.util.PhysicsUtil;
+
+/**
+ * A reusable list of the solid rectangles found by a query to the
+ * BlockManager. Clearing and refilling it does not allocate once it
+ * has grown large enough.
+ * 
+ * @author Sebastian Olsson
+ */
+public class ColliderBuffer {
+    private float[] x;        // Top left corners of the rectangles.
+    private float[] y;
+    private float[] width;
+    private float[] height;
+    private Entity[] entities;
+    private int size;
+    private long[] hits;      // One bit per rectangle, set by intersect().
+    
+    /**
+     * Creates an empty buffer.
+     */
+    public ColliderBuffer() {
+        x = new float[16];
+        y = new float[16];
+        width = new float[16];
+        height = new float[16];
+        entities = new Entity[16];
+        hits = new long[1];
+    }
+    
+    /**
+     * Removes all rectangles.
+     */
+    public void clear() {
+        for(int i = 0;i < size;i++) {
+            entities[i] = null;
+        }
+        size = 0;
+    }
+    
+    /**
+     * Adds the rectangle of an entity.
+     */
+    public void add(Entity entity) {
+        Rectangle2D.Float r = entity.getRectangle();
+        add(r.x, r.y, r.width, r.height, entity);
+    }
+    
+    /**
+     * Adds a rectangle that belongs to no entity, such as a tile.
+     */
+    public void add(float x, float y, float width, float height) {
+        add(x, y, width, height, null);
+    }
+    
+    /**
+     * Adds the rectangles of another buffer that were hit by its latest
+     * call to intersect().
+     */
+    public void addHits(ColliderBuffer from) {
+        for(int i = from.nextHit(0);i != -1;i = from.nextHit(i+1)) {
+            add(from.x[i], from.y[i], from.width[i], from.height[i], from.entities[i]);
+        }
+    }
+    
+    private void add(float x, float y, float width, float height, Entity entity) {
+        if(size == entities.length) {
+            grow();
+        }
+        this.x[size] = x;
+        this.y[size] = y;
+        this.width[size] = width;
+        this.height[size] = height;
+        entities[size] = entity;
+        size++;
+    }
+    
+    /**
+     * @return The number of rectangles
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * @return The left edge of rectangle i
+     */
+    public float getX(int i) {
+        return x[i];
+    }
+    
+    /**
+     * @return The top edge of rectangle i
+     */
+    public float getY(int i) {
+        return y[i];
+    }
+    
+    /**
+     * @return The width of rectangle i
+     */
+    public float getWidth(int i) {
+        return width[i];
+    }
+    
+    /**
+     * @return The height of rectangle i
+     */
+    public float getHeight(int i) {
+        return height[i];
+    }
+    
+    /**
+     * @return The entity of rectangle i, or null if it is a tile
+     */
+    public Entity getEntity(int i) {
+        return entities[i];
+    }
+    
+    /**
+     * Tests all the rectangles against a box at once and remembers which
+     * of them intersect or touch it.
+     * 
+     * @param x Left edge of the box
+     * @param y Top edge of the box
+     * @param w Width of the box
+     * @param h Height of the box
+     * @return The number of rectangles hit
+     */
+    public int intersect(float x, float y, float w, float h) {
+        return PhysicsUtil.getBatchIntersector().intersect(x, y, w, h, this.x, this.y, width, height, size, hits);
+    }
+    
+    /**
+     * @return True iff rectangle i was hit by the latest call to intersect()
+     */
+    public boolean isHit(int i) {
+        return (hits[i >> 6] & 1L << (i & 63)) != 0;
+    }
+    
+    /**
+     * Returns the first rectangle from i on that was hit by the latest
+     * call to intersect(), so that the hits can be gone through without
+     * looking at the other rectangles.
+     * 
+     * @return The index of the rectangle, or -1 if there is none
+     */
+    public int nextHit(int i) {
+        if(i >= size) {
+            return -1;
+        }
+        int word = i >> 6;
+        long bits = hits[word] & -1L << (i & 63);
+        while(bits == 0) {
+            word++;
+            if(word*64 >= size) {
+                return -1;
+            }
+            bits = hits[word];
+        }
+        return word*64+Long.numberOfTrailingZeros(bits);
+    }
+    
+    /**
+     * Doubles the room for rectangles.
+     */
+    private void grow() {
+        int n = entities.length*2;
+        x = copyOf(x, n);
+        y = copyOf(y, n);
+        width = copyOf(width, n);
+        height = copyOf(height, n);
+        Entity[] newEntities = new Entity[n];
+        System.arraycopy(entities, 0, newEntities, 0, size);
+        entities = newEntities;
+        long[] newHits = new long[(n+63)/64];
+        System.arraycopy(hits, 0, newHits, 0, hits.length);
+        hits = newHits;
+    }
+    
+    private float[] copyOf(float[] a, int n) {
+        float[] b = new float[n];
+        System.arraycopy(a, 0, b, 0, size);
+        return b;
+    }
+}
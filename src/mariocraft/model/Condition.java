@@ -1,6 +1,6 @@
 package mariocraft.model;
 
-import mariocraft.geom.Vector2D;
+import mariocraft.geom.MutableVector2D;
 
 /**
  * Stores all possible conditions of the protagonist.
@@ -33,18 +33,21 @@ public class Condition {
     }
     
     /**
-     * Returns a vector describing the aim.
+     * Sets a vector to describe the aim.
+     * 
+     * @param out The vector to set
+     * @return The vector
      */
-    public Vector2D getAim() {
+    public MutableVector2D getAim(MutableVector2D out) {
         switch(aim) {
-            case UP: return new Vector2D(0,-1);
-            case DOWN: return new Vector2D(0,1);
-            case LEFT: return new Vector2D(-1,0);
-            case RIGHT: return new Vector2D(1,0);
-            case UP_LEFT: return new Vector2D(-1,-1);
-            case UP_RIGHT: return new Vector2D(1,-1);
-            case DOWN_LEFT: return new Vector2D(-1,1);
-            case DOWN_RIGHT: return new Vector2D(1,1);
+            case UP: return out.set(0,-1);
+            case DOWN: return out.set(0,1);
+            case LEFT: return out.set(-1,0);
+            case RIGHT: return out.set(1,0);
+            case UP_LEFT: return out.set(-1,-1);
+            case UP_RIGHT: return out.set(1,-1);
+            case DOWN_LEFT: return out.set(-1,1);
+            case DOWN_RIGHT: return out.set(1,1);
         }
         return null;
     }
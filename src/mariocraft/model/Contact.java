@@ -0,0 +1,102 @@
+package mariocraft.model;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * What a sprite stands on after it has been moved: the supporting
+ * collider, the normal of the surface pointing towards the sprite, and
+ * how far the sprite sank into it. The collision solver fills it in, so
+ * that the ground does not have to be looked for again afterwards.
+ *
+ * @author Sebastian Olsson
+ */
+public class Contact {
+    private boolean touching;
+    private Entity entity;          // The supporting entity, or null if it is a tile.
+    private Rectangle2D.Float rectangle;
+    private float normalX;
+    private float normalY;
+    private float penetration;      // Negative if there is a gap.
+
+    /**
+     * Creates a contact with nothing.
+     */
+    public Contact() {
+        rectangle = new Rectangle2D.Float();
+    }
+
+    /**
+     * Sets the collider that is touched.
+     *
+     * @param x Left edge of the collider
+     * @param y Top edge of the collider
+     * @param width Width of the collider
+     * @param height Height of the collider
+     * @param entity The collider, or null if it is a tile
+     * @param normalX The normal of the touched side
+     * @param normalY
+     * @param penetration How far the sprite sank into the collider
+     */
+    public void set(float x, float y, float width, float height, Entity entity, float normalX, float normalY, float penetration) {
+        touching = true;
+        this.entity = entity;
+        rectangle.setRect(x, y, width, height);
+        this.normalX = normalX;
+        this.normalY = normalY;
+        this.penetration = penetration;
+    }
+
+    /**
+     * Makes the contact touch nothing.
+     */
+    public void clear() {
+        touching = false;
+        entity = null;
+        rectangle.setRect(0, 0, 0, 0);
+        normalX = 0;
+        normalY = 0;
+        penetration = 0;
+    }
+
+    /**
+     * @return True iff a collider is touched
+     */
+    public boolean isTouching() {
+        return touching;
+    }
+
+    /**
+     * @return The touched entity, or null if it is a tile or nothing
+     */
+    public Entity getEntity() {
+        return entity;
+    }
+
+    /**
+     * @return The rectangle of the touched collider
+     */
+    public Rectangle2D.Float getRectangle() {
+        return rectangle;
+    }
+
+    /**
+     * @return The x-component of the normal of the touched side
+     */
+    public float getNormalX() {
+        return normalX;
+    }
+
+    /**
+     * @return The y-component of the normal of the touched side
+     */
+    public float getNormalY() {
+        return normalY;
+    }
+
+    /**
+     * @return How far the sprite sank into the collider before it was put on it
+     */
+    public float getPenetration() {
+        return penetration;
+    }
+}
@@ -1,22 +1,19 @@
 package mariocraft.model;
 
-import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.awt.Graphics;
-
-import javax.swing.JComponent;
+import java.awt.image.BufferedImage;
 
 import mariocraft.geom.Vector2D;
 
 /**
  * Represents a graphical object in the game.
- * The object has a rectangular shape.
+ * The object has a rectangular shape. It is drawn by the level snapshot
+ * from its rectangle and image, so it carries no Swing component state.
  * 
  * @author Sebastian Olsson
  * @version 2011-04-10
  */
-@SuppressWarnings("serial")
-public abstract class Entity extends JComponent {
+public abstract class Entity {
     protected Rectangle2D.Float rectangle;
     
     /**
@@ -41,7 +38,6 @@ public abstract class Entity extends JComponent {
      */
     public Entity(float midX, float midY, float width, float height) {
         rectangle = new Rectangle2D.Float(midX-width/2, midY-height/2, width, height);
-        setSize((int)width,(int)height);
     }
     
     /**
@@ -51,13 +47,6 @@ public abstract class Entity extends JComponent {
         return rectangle;
     }
     
-    /**
-     * @return The midpoint of the rectangle
-     */
-    public Point2D.Float getCenterpoint() {
-        return new Point2D.Float(getCenterX(), getCenterY());
-    }
-    
     /**
      * @return x-coordinate in the middle of the rectangle
      */
@@ -111,7 +100,6 @@ public abstract class Entity extends JComponent {
      */
     public void setRectangleWidth(float value) {
         rectangle.width = value;
-        setSize((int)rectangle.width,(int)rectangle.height);
     }
     
     /**
@@ -121,7 +109,6 @@ public abstract class Entity extends JComponent {
      */
     public void setRectangleHeight(float value) {
         rectangle.height = value;
-        setSize((int)rectangle.width,(int)rectangle.height);
     }
     
     /**
@@ -140,7 +127,7 @@ public abstract class Entity extends JComponent {
     }
     
     /**
-     * Draws the entity.
+     * @return The image that the entity currently looks like
      */
-    public abstract void paint(Graphics g);
+    public abstract BufferedImage getImage();
 }
\ No newline at end of file
@@ -0,0 +1,196 @@
+package mariocraft.model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The keys held down during each update of a level, as given by
+ * KeyState.getBits(). Together with the name and seed of the level and
+ * the size of the screen it was played on, which decides what part of
+ * the level is updated, it is enough to play the level over again
+ * exactly. Keys are held down for many updates in a row, so the bits
+ * are stored as runs of equal values.
+ * 
+ * @author Sebastian Olsson
+ */
+public class InputRecording {
+    private static final int MAGIC = 0x4d435232; // "MCR2"
+    
+    private String levelName;
+    private long seed;
+    private int screenWidth;
+    private int screenHeight;
+    private int[] bits;     // The keys of each run.
+    private int[] lengths;  // The number of updates in each run.
+    private int runs;
+    private int ticks;
+    
+    private int cursorRun;  // The run that the latest getBits() was in.
+    private int cursorTick; // The first update of that run.
+    
+    /**
+     * Creates an empty recording of a level played without a screen, like
+     * the headless runner does.
+     * 
+     * @param levelName The directory of the level, e.g. "level1/"
+     * @param seed The seed of the level
+     */
+    public InputRecording(String levelName, long seed) {
+        this(levelName, seed, 0, 0);
+    }
+    
+    /**
+     * Creates an empty recording.
+     * 
+     * @param levelName The directory of the level, e.g. "level1/"
+     * @param seed The seed of the level
+     * @param screenWidth The width of the screen the level is played on
+     * @param screenHeight The height of the screen the level is played on
+     */
+    public InputRecording(String levelName, long seed, int screenWidth, int screenHeight) {
+        this.levelName = levelName;
+        this.seed = seed;
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+        bits = new int[16];
+        lengths = new int[16];
+    }
+    
+    /**
+     * Adds the keys held down during the next update.
+     */
+    public void record(int keyBits) {
+        record(keyBits, 1);
+    }
+    
+    /**
+     * Adds the keys held down during a number of updates in a row.
+     */
+    private void record(int keyBits, int length) {
+        if(runs > 0 && bits[runs-1] == keyBits) {
+            lengths[runs-1] += length;
+        } else {
+            if(runs == bits.length) {
+                bits = copyOf(bits, runs*2);
+                lengths = copyOf(lengths, runs*2);
+            }
+            bits[runs] = keyBits;
+            lengths[runs] = length;
+            runs++;
+        }
+        ticks += length;
+    }
+    
+    /**
+     * Returns the keys held down during the given update, or none if
+     * the recording ended before it. Fast when the updates are asked
+     * for in order.
+     * 
+     * @param tick The number of updates that had passed in the level
+     * @return The bits of the keys held down
+     */
+    public int getBits(int tick) {
+        if(tick < 0 || tick >= ticks) {
+            return 0;
+        }
+        if(tick < cursorTick) {
+            cursorRun = 0;
+            cursorTick = 0;
+        }
+        while(tick >= cursorTick+lengths[cursorRun]) {
+            cursorTick += lengths[cursorRun];
+            cursorRun++;
+        }
+        return bits[cursorRun];
+    }
+    
+    /**
+     * @return The directory of the recorded level
+     */
+    public String getLevelName() {
+        return levelName;
+    }
+    
+    /**
+     * @return The seed of the recorded level
+     */
+    public long getSeed() {
+        return seed;
+    }
+    
+    /**
+     * @return The width of the screen the level was played on
+     */
+    public int getScreenWidth() {
+        return screenWidth;
+    }
+    
+    /**
+     * @return The height of the screen the level was played on
+     */
+    public int getScreenHeight() {
+        return screenHeight;
+    }
+    
+    /**
+     * @return The number of updates recorded
+     */
+    public int getTicks() {
+        return ticks;
+    }
+    
+    /**
+     * @return The number of runs of equal keys
+     */
+    public int getRuns() {
+        return runs;
+    }
+    
+    /**
+     * Writes the recording to a stream.
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeUTF(levelName);
+        data.writeLong(seed);
+        data.writeInt(screenWidth);
+        data.writeInt(screenHeight);
+        data.writeInt(runs);
+        for(int i = 0;i < runs;i++) {
+            data.writeByte(bits[i]);
+            data.writeInt(lengths[i]);
+        }
+        data.flush();
+    }
+    
+    /**
+     * Reads a recording written by write().
+     * 
+     * @throws IOException If the stream does not hold a recording
+     */
+    public static InputRecording read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if(data.readInt() != MAGIC) {
+            throw new IOException("Not an input recording.");
+        }
+        String levelName = data.readUTF();
+        long seed = data.readLong();
+        InputRecording recording = new InputRecording(levelName, seed, data.readInt(), data.readInt());
+        int runs = data.readInt();
+        for(int i = 0;i < runs;i++) {
+            int keyBits = data.readUnsignedByte();
+            recording.record(keyBits, data.readInt());
+        }
+        return recording;
+    }
+    
+    private static int[] copyOf(int[] a, int n) {
+        int[] b = new int[n];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+}
@@ -9,6 +9,17 @@ import java.awt.event.*;
  */
 public class KeyState implements KeyListener {
 	
+	/*
+	 * Bits of the keys read by a level, as given by getBits()
+	 */
+	public static final int LEFT = 1;
+	public static final int RIGHT = 2;
+	public static final int UP = 4;
+	public static final int DOWN = 8;
+	public static final int JUMP = 16;
+	public static final int LIFT = 32;
+	public static final int CHEAT = 64;
+	
 	public boolean left;
 	public boolean right;
 	public boolean up;
@@ -17,6 +28,7 @@ public class KeyState implements KeyListener {
 	public boolean lift;
 	public boolean escape;
 	public boolean cheat; // Player warps to the next level.
+	public boolean profiler; // Shows how long each phase of an update takes.
 	
     /**
      * Change the state according to the key pressed
@@ -32,6 +44,7 @@ public class KeyState implements KeyListener {
 			case KeyEvent.VK_Z :      lift =    true;    break;
 			case KeyEvent.VK_ESCAPE : escape = 	!escape; break;
 			case KeyEvent.VK_PLUS :   cheat =   true;    break;
+			case KeyEvent.VK_F3 :     profiler = !profiler; break;
 		}
 	}
 	
@@ -57,7 +70,39 @@ public class KeyState implements KeyListener {
 	public void keyTyped(KeyEvent e) {}
 	
 	/**
-     * Reset the key state, i.e. set all the keys to false.
+	 * Returns the keys read by a level as a bitmask, one bit per key.
+	 * Escape and the profiler are left out.
+	 * @return the bits of the keys that are held down
+	 */
+	public int getBits() {
+		int bits = 0;
+		if (left)  bits |= LEFT;
+		if (right) bits |= RIGHT;
+		if (up)    bits |= UP;
+		if (down)  bits |= DOWN;
+		if (jump)  bits |= JUMP;
+		if (lift)  bits |= LIFT;
+		if (cheat) bits |= CHEAT;
+		return bits;
+	}
+	
+	/**
+	 * Sets the keys read by a level from a bitmask given by getBits().
+	 * @param bits the bits of the keys that are held down
+	 */
+	public void setBits(int bits) {
+		left = (bits & LEFT) != 0;
+		right = (bits & RIGHT) != 0;
+		up = (bits & UP) != 0;
+		down = (bits & DOWN) != 0;
+		jump = (bits & JUMP) != 0;
+		lift = (bits & LIFT) != 0;
+		cheat = (bits & CHEAT) != 0;
+	}
+	
+	/**
+     * Reset the key state, i.e. set all the keys to false. Whether the
+     * profiler is shown is kept.
      */
 	public void reset() {
 		left = false;
@@ -1,11 +1,12 @@
 package mariocraft.model;
 
-import java.awt.Graphics;
-import java.awt.Color;
-import java.util.HashSet;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 
 import mariocraft.util.PhysicsUtil;
-import mariocraft.geom.Vector2D;
+import mariocraft.geom.MutableVector2D;
+import mariocraft.metrics.TickProfiler;
 
 /**
  * A game level.
@@ -16,14 +17,31 @@ import mariocraft.geom.Vector2D;
 public class Level {
 	private Protagonist prot;
 	private BlockManager blocks;
+	private ColliderBuffer colliders;
+	private BallSystem balls;
+	private SweepAndPrune movers;    // The moving platforms.
+	private StaticIndex triggers;    // The spikes and the goal.
+	private StaticIndex platformRanges;    // The moving platforms, by where they move.
+	private int[] activeBalls;       // The indices of the balls that are updated.
+	private int activeBallCount;
+	private int[] nearBalls;
+	private ArrayList<MovingPlatform> activePlatforms;
 	private BackgroundManager bg;
-	private HashSet<Ball> balls;
-	private HashSet<Spikes> spikes;
-	private HashSet<MovingPlatform> movingPlatforms;
 	private Goal goal;
 	private KeyState keys;
+	private MutableVector2D aim;     // Scratch space for the aim of the protagonist.
+	private TickProfiler profiler;
 	private boolean finished;
 	private boolean victorious;
+	private long seed;
+	private int tick;                // The number of the latest update.
+	private float activityWidth;     // The size of the area around the protagonist where
+	private float activityHeight;    // the balls and the moving platforms are updated.
+	private float minActivityWidth;  // The smallest activity area, whatever the screen size.
+	private float minActivityHeight;
+	private ColliderBuffer nearPlatforms; // Scratch space for the platforms a suspended ball may hit.
+	private ColliderBuffer nearBall; // Scratch space for what one ball may hit.
+	private Rectangle2D.Float reach; // Scratch space for the area a group of balls may reach.
 	
 	private float startPosX;
 	private float startPosY;
@@ -32,6 +50,15 @@ public class Level {
     private int SCREEN_HEIGHT;
     
     private static final String BACKGROUND_IMAGE_NAME = "bg1.jpg";
+    private static final int PLATFORMS = 1;
+    private static final int ACTIVITY_MARGIN = 4; // Blocks between the edge of the screen and the activity area.
+    
+    /**
+     * The most missed updates that the suspended balls make up for in
+     * one update, which takes a millisecond or two. Balls that missed
+     * more go on making up for them in the updates that follow.
+     */
+    public static final int CATCH_UP_BUDGET = 4096;
 	
 	/**
 	 * Creates a level out of a level designer.
@@ -41,31 +68,128 @@ public class Level {
 		bg = new BackgroundManager(BACKGROUND_IMAGE_NAME);
         prot = designer.protagonist;
         
-        startPosX = prot.getCenterX() - prot.getWidth() / 2;
-        startPosY = prot.getCenterY() - prot.getHeight() / 2;
+        startPosX = prot.getCenterX() - prot.getRectangleWidth() / 2;
+        startPosY = prot.getCenterY() - prot.getRectangleHeight() / 2;
         
         blocks = designer.blocks;
-        balls = designer.balls;
-        spikes = designer.spikes;
-        movingPlatforms = designer.movingPlatforms;
+        colliders = new ColliderBuffer();
         goal = designer.goal;
-        updateRelativeLocations();
+        seed = designer.seed;
+        balls = designer.balls;
+        movers = new SweepAndPrune();
+        for(MovingPlatform platform:designer.movingPlatforms) {
+            movers.add(platform, PLATFORMS);
+        }
+        movers.refit();
+        ArrayList<Entity> still = new ArrayList<Entity>(designer.spikes);
+        if(goal != null) {
+            still.add(goal);
+        }
+        triggers = new StaticIndex(still, blocks.getBlockSize());
+        ArrayList<MovingPlatform> platforms = new ArrayList<MovingPlatform>(designer.movingPlatforms);
+        ArrayList<Rectangle2D.Float> ranges = new ArrayList<Rectangle2D.Float>();
+        for(MovingPlatform platform:platforms) {
+            ranges.add(platform.getRange());
+        }
+        platformRanges = new StaticIndex(platforms, ranges, blocks.getBlockSize());
+        activeBalls = new int[balls.size()];
+        nearBalls = new int[balls.size()];
+        activePlatforms = new ArrayList<MovingPlatform>();
+        minActivityWidth = designer.activityWidth;
+        minActivityHeight = designer.activityHeight;
+        nearPlatforms = new ColliderBuffer();
+        nearBall = new ColliderBuffer();
+        reach = new Rectangle2D.Float();
+        updateActivitySize();
+        aim = new MutableVector2D();
+        profiler = new TickProfiler();
 	}
 	
     /**
-     * Updates the entity locations relative to the protagonist.
+     * Finds the balls and the moving platforms in the activity area around
+     * the protagonist. Only they are updated. The others are suspended until
+     * the area reaches them again: a platform then jumps to where its pattern
+     * has taken it, and a ball makes up for the updates it missed. The
+     * balls make up for at most CATCH_UP_BUDGET updates in all, so waking
+     * many balls that were suspended for long is spread over a number of
+     * updates. A ball is updated only once it has caught up; until then
+     * it stays suspended.
+     * <p>
+     * The balls are found by where they were suspended, not by where they
+     * would have gone since. A ball whose path has taken it into the area
+     * stays suspended until the area reaches where it was left. On the way
+     * it is neither seen nor deadly, and when it wakes it turns up wherever
+     * its path has taken it, which may be right on the protagonist.
      */
-    private void updateRelativeLocations() {
-        for(Ball ball:balls) {
-            ball.setRelativeLocation(prot.getCenterpoint());
+    private void updateActivity() {
+        tick++;
+        float x = prot.getCenterX()-activityWidth/2;
+        float y = prot.getCenterY()-activityHeight/2;
+        colliders.clear();
+        platformRanges.findNear(x, y, activityWidth, activityHeight, colliders);
+        activePlatforms.clear();
+        for(int i = 0;i < colliders.size();i++) {
+            activePlatforms.add((MovingPlatform)colliders.getEntity(i));
         }
-        for(Spikes spike:spikes) {
-            spike.setRelativeLocation(prot.getCenterpoint());
+        int near = balls.findNear(x, y, activityWidth, activityHeight, nearBalls);
+        int budget = CATCH_UP_BUDGET;
+        activeBallCount = 0;
+        for(int k = 0;k < near;k++) {
+            int ball = nearBalls[k];
+            budget -= catchUp(ball, budget);
+            if(balls.getLastUpdate(ball) == tick) {
+                activeBalls[activeBallCount++] = ball;
+            }
         }
-        for(MovingPlatform platform:movingPlatforms) {
-            platform.setRelativeLocation(prot.getCenterpoint());
+    }
+    
+    /**
+     * Moves a ball through the updates it missed while it was suspended,
+     * as many of them as the budget allows. Each is done like the update
+     * of a ball that is not suspended, with the moving platforms put where
+     * their patterns had taken them at that update, since a suspended
+     * platform does not move either. The tiles, blocks and boulders are
+     * taken as they are now, so the ball ends up where it would have been
+     * had it never been suspended as long as they have not changed where
+     * it went. They only change close to the protagonist.
+     * 
+     * @param budget The most updates to make up for
+     * @return The number of updates made up for
+     */
+    private int catchUp(int ball, int budget) {
+        int from = balls.getLastUpdate(ball);
+        int to = Math.min(tick-1, from+budget);
+        for(int t = from+1;t <= to;t++) {
+            float reach = balls.getSpeed(ball);
+            float x = balls.getX(ball)-reach;
+            float y = balls.getY(ball)-reach;
+            float w = balls.getWidth(ball)+2*reach;
+            float h = balls.getHeight(ball)+2*reach;
+            colliders.clear();
+            blocks.getCollidersIn(x, y, w, h, colliders);
+            nearPlatforms.clear();
+            platformRanges.findNear(x, y, w, h, nearPlatforms);
+            for(int i = 0;i < nearPlatforms.size();i++) {
+                MovingPlatform platform = (MovingPlatform)nearPlatforms.getEntity(i);
+                colliders.add(platform.getXAt(t), platform.getYAt(t), platform.getRectangleWidth(), platform.getRectangleHeight());
+            }
+            PhysicsUtil.moveBall(balls, ball, colliders);
+            balls.updateAnimation(ball);
+        }
+        balls.setLastUpdate(ball, to == tick-1 ? tick : to);
+        return to-from;
+    }
+    
+    /**
+     * Remembers the current location of the sprites as their previous location.
+     */
+    private void updatePreLocations() {
+        prot.updatePreLocation();
+        balls.updatePreLocations(activeBalls, activeBallCount);
+        for(int i = 0;i < activePlatforms.size();i++) {
+            MovingPlatform platform = activePlatforms.get(i);
+            platform.updatePreLocation();
         }
-        goal.setRelativeLocation(prot.getCenterpoint());
     }
 	
     /**
@@ -76,87 +200,68 @@ public class Level {
     }
 	
     /**
-     * Moves the entities.
+     * Moves the moving platforms. The protagonist and the balls are
+     * moved when their collisions are detected.
      */
     private void updateMovement() {
-        prot.move();
-        for(Ball ball:balls) {
-            ball.move();
-        }
-        for(MovingPlatform platform:movingPlatforms) {
+        for(int i = 0;i < activePlatforms.size();i++) {
+            MovingPlatform platform = activePlatforms.get(i);
             platform.move();
         }
     }
 	
     /**
-     * Collision detects all entities. Takes measures
-     * if a collision happens to take place.
+     * Finds what a sprite may hit when it moves by its velocity: the tiles,
+     * blocks, boulders and moving platforms in the area swept by the sprite.
+     */
+    private void findColliders(Sprite sprite) {
+        Rectangle2D.Float r = sprite.getRectangle();
+        float vx = sprite.getVelocityX();
+        float vy = sprite.getVelocityY();
+        findColliders(Math.min(r.x, r.x+vx), Math.min(r.y, r.y+vy), r.width+Math.abs(vx), r.height+Math.abs(vy));
+    }
+    
+    /**
+     * Finds the tiles, blocks, boulders and moving platforms in an area.
+     */
+    private void findColliders(float x, float y, float w, float h) {
+        blocks.getCollidersIn(x, y, w, h, colliders);
+        movers.findNear(x, y, w, h, PLATFORMS, colliders);
+    }
+    
+    /**
+     * Moves the protagonist and the balls, stopping them at what
+     * they would hit on the way. The balls are moved in groups of balls
+     * that are close together. What the balls of a group may hit is found
+     * once, in the area that all of them may reach, so a crowd of balls
+     * costs little more to find colliders for than one ball.
      */
     private void updateCollisions() {
-        for(Block block:blocks.getBlocksAt(prot.getCenterX()-prot.getRectangleWidth()/2)){
-            if(block.intersects(prot)) {
-                PhysicsUtil.protagonistCollision(prot, block);
-            }
-        }
-        for(Boulder boulder:blocks.getBouldersAt(prot.getCenterX()-prot.getRectangleWidth()/2)){
-            if(boulder.intersects(prot)) {
-                PhysicsUtil.protagonistCollision(prot, boulder);
-            }
-        }
-        for(MovingPlatform platform:movingPlatforms){
-            if(platform.intersects(prot)) {
-                PhysicsUtil.protagonistCollision(prot, platform);
-            }
-        }
-        for(Ball ball:balls) {
-            for(Block block:blocks.getBlocksAt(ball.getCenterX()-ball.getRectangleWidth()/2)){
-                if(block.intersects(ball)) {
-                    PhysicsUtil.ballCollision(ball, block);
-                }
-            }
-            for(Boulder boulder:blocks.getBouldersAt(ball.getCenterX()-ball.getRectangleWidth()/2)){
-                if(boulder.intersects(ball)) {
-                    PhysicsUtil.ballCollision(ball, boulder);
-                }
-            }
-            for(MovingPlatform platform:movingPlatforms){
-                if(platform.intersects(ball)) {
-                    PhysicsUtil.ballCollision(ball, platform);
-                }
-            }
+        movers.refit();
+        findColliders(prot);
+        PhysicsUtil.moveProtagonist(prot, colliders);
+        for(int k = 0;k < activeBallCount;) {
+            int end = balls.findGroup(activeBalls, k, activeBallCount, reach);
+            findColliders(reach.x, reach.y, reach.width, reach.height);
+            PhysicsUtil.moveBalls(balls, activeBalls, k, end, colliders, nearBall);
+            k = end;
         }
+        balls.refit();
     }
     
     /**
-     * Updates the standing state of the protagonist.
+     * Updates the standing state of the protagonist from the ground
+     * contact found when it was moved.
      */
     public void updateGround() {
-        if(!prot.isAirborne()) {
-            if(!PhysicsUtil.touchesAbove(prot.getGround(), prot)) {
-                prot.detach();
-                prot.setAirborne(true);
-                for(Block block:blocks.getBlocksAt(prot.getCenterX()-prot.getRectangleWidth()/2)) {
-                    if(PhysicsUtil.touchesAbove(block, prot)) {
-                        prot.setGround(block);
-                        prot.setAirborne(false);
-                        return;
-                    }
-                }
-                for(Boulder boulder:blocks.getBouldersAt(prot.getCenterX()-prot.getRectangleWidth()/2)) {
-                    if(PhysicsUtil.touchesAbove(boulder, prot)) {
-                        prot.setGround(boulder);
-                        prot.setAirborne(false);
-                        return;
-                    }
-                }
-                for(MovingPlatform platform:movingPlatforms) {
-                    if(PhysicsUtil.touchesAbove(platform, prot)) {
-                        prot.setGround(platform);
-                        prot.setAirborne(false);
-                        return;
-                    }
-                }
+        if(prot.getGroundContact().isTouching()) {
+            if(prot.isAirborne()) {
+                prot.setAirborne(false);
+                prot.setJumping(false);
+                prot.updateTimeAirborne();
             }
+        } else {
+            prot.setAirborne(true);
         }
     }
 	
@@ -164,6 +269,27 @@ public class Level {
 	    this.keys = keys;
 	}
 	
+	/**
+	 * @return The seed of the random choices made in the level
+	 */
+	public long getSeed() {
+	    return seed;
+	}
+	
+	/**
+	 * Sets the profiler that measures the phases of each update.
+	 */
+	public void setProfiler(TickProfiler profiler) {
+	    this.profiler = profiler;
+	}
+	
+	/**
+	 * @return The profiler that measures the phases of each update
+	 */
+	public TickProfiler getProfiler() {
+	    return profiler;
+	}
+	
     /**
      * Updates keyboard input. 
      */
@@ -199,7 +325,8 @@ public class Level {
             prot.setCanLift(true);
         }
         if(!prot.isCarrying() && keys.lift && prot.canLift()) {
-            if(blocks.popBoulderAtPos(prot.getCenterX()+prot.getAimVector().x, prot.getCenterY()+prot.getAimVector().y) != null) {
+            prot.getAimVector(aim);
+            if(blocks.popBoulderAtPos(prot.getCenterX()+aim.x, prot.getCenterY()+aim.y) != null) {
                 prot.toggleCarrying();
             }
             prot.setCanLift(false);
@@ -214,7 +341,8 @@ public class Level {
      */
     private void dropBoulder() {
         if(prot.isCarrying()) {
-            blocks.addBoulderAtPos((int)(prot.getCenterX()+prot.getAimVector().x), (int)(prot.getCenterY()+prot.getAimVector().y));
+            prot.getAimVector(aim);
+            blocks.addBoulderAtPos((int)(prot.getCenterX()+aim.x), (int)(prot.getCenterY()+aim.y));
             prot.toggleCarrying();
             prot.setCanLift(false);
         }
@@ -225,32 +353,41 @@ public class Level {
      */
     private void updateAnimations() {
         prot.updateAnimation();
-        for(Ball ball:balls) {
-            ball.updateAnimation();
-        }
+        balls.updateAnimations(activeBalls, activeBallCount);
     }
 	
     /**
-     * Determines when the level ends.
+     * Determines when the level ends. Balls that are still making up for
+     * missed updates are not where they should be yet, and are left out.
      */
     private void updateTermination() {
-        if(prot.intersects(goal)) {
-            victorious = true;
+        Rectangle2D.Float r = prot.getRectangle();
+        boolean spiked = false;
+        colliders.clear();
+        triggers.findNear(r.x, r.y, r.width, r.height, colliders);
+        for(int i = 0;i < colliders.size();i++) {
+            Entity trigger = colliders.getEntity(i);
+            if(prot.intersects(trigger)) {
+                if(trigger == goal) {
+                    victorious = true;
+                } else {
+                    spiked = true;
+                }
+            }
         }
         if(isVictorious()) {
             finished = true;
         } else {
-            for(Ball ball:balls) {
-                if(prot.intersects(ball)) {
+            int near = balls.findNear(r.x, r.y, r.width, r.height, nearBalls);
+            for(int k = 0;k < near;k++) {
+                int ball = nearBalls[k];
+                if(balls.getLastUpdate(ball) == tick && balls.intersects(ball, r.x, r.y, r.width, r.height)) {
                     finished = true;
                     break;
                 }
             }
-            for(Spikes spike:spikes) {
-                if(prot.intersects(spike)) {
-                    finished = true;
-                    break;
-                }
+            if(spiked) {
+                finished = true;
             }
         }
     }
@@ -259,10 +396,11 @@ public class Level {
      * Updates the movement pattern of the moving platforms.
      */
     private void updateMovingPlatforms() {
-        for(MovingPlatform platform:movingPlatforms) {
-            platform.updateMovement();
+        for(int i = 0;i < activePlatforms.size();i++) {
+            MovingPlatform platform = activePlatforms.get(i);
+            platform.updateMovement(tick);
             if(prot.getGround() == platform) {
-                prot.move(platform.getVelocity());
+                prot.move(platform.getVelocityX(), platform.getVelocityY());
             }
         }
     }
@@ -271,7 +409,7 @@ public class Level {
      * Updates various conditions.
      */
     private void updateConditions() {
-        if(prot.getVelocity().y < 0) {
+        if(prot.getVelocityY() < 0) {
             prot.setJumping(true);
         } else {
             prot.setJumping(false);
@@ -286,21 +424,36 @@ public class Level {
     }
     
     /**
-     * Updates the screen.
+     * Advances the level by one time step.
      */
     public void update() {
+        long start = profiler.start();
+        long mark = start;
+        updateActivity();
+        mark = profiler.mark(TickPhase.ACTIVITY, mark);
+        updatePreLocations();
+        mark = profiler.mark(TickPhase.PRE_LOCATIONS, mark);
         updateGravity();
+        mark = profiler.mark(TickPhase.GRAVITY, mark);
         updateKeyState();
+        mark = profiler.mark(TickPhase.KEY_STATE, mark);
         updateConditions();
+        mark = profiler.mark(TickPhase.CONDITIONS, mark);
         updateTimeAirborne();
+        mark = profiler.mark(TickPhase.TIME_AIRBORNE, mark);
         updateMovingPlatforms();
+        mark = profiler.mark(TickPhase.MOVING_PLATFORMS, mark);
         updateMovement();
+        mark = profiler.mark(TickPhase.MOVEMENT, mark);
         updateCollisions();
+        mark = profiler.mark(TickPhase.COLLISIONS, mark);
         updateGround();
-        
-        updateRelativeLocations();
+        mark = profiler.mark(TickPhase.GROUND, mark);
         updateAnimations();
+        mark = profiler.mark(TickPhase.ANIMATIONS, mark);
         updateTermination();
+        profiler.mark(TickPhase.TERMINATION, mark);
+        profiler.end(start);
     }
 
     /**
@@ -322,9 +475,10 @@ public class Level {
 	 */
 	public void resetProtagonist() {
 	    dropBoulder();
-	    prot.setVelocity(Vector2D.ZERO);
+	    prot.setVelocity(0, 0);
 		prot.setLocation(startPosX, startPosY);
-		updateRelativeLocations();
+		prot.detach();
+		prot.updatePreLocation();
 		finished = false;
 		victorious = false;
 	}
@@ -335,39 +489,80 @@ public class Level {
    public void setScreenSize(int w, int h) {
        SCREEN_WIDTH = w;
 	   SCREEN_HEIGHT = h;
+	   updateActivitySize();
+    }
+   
+    /**
+     * Sizes the activity area to cover the screen and a margin around it,
+     * but never less than the size given by the level constants.
+     */
+    private void updateActivitySize() {
+        float margin = 2*ACTIVITY_MARGIN*blocks.getBlockSize();
+        activityWidth = Math.max(minActivityWidth, SCREEN_WIDTH+margin);
+        activityHeight = Math.max(minActivityHeight, SCREEN_HEIGHT+margin);
     }
 	
+	/**
+	 * @return The balls of the level
+	 */
+	public BallSystem getBalls() {
+	    return balls;
+	}
+	
     /**
-     * Paints the level.
+     * Fills in a snapshot of how the level looks after the latest update.
+     * The snapshot can then be painted without touching the level.
+     * 
+     * @param s The snapshot to fill in
      */
-    public void paint(Graphics g) {
-    	int xstart = (int) prot.getCenterX() - SCREEN_WIDTH/2;
-    	int ystart = (int) prot.getCenterY() - SCREEN_HEIGHT/2;
-    	
-    	bg.paint(g, xstart, ystart);
-        prot.paint(g);
-        blocks.paint(g, xstart, prot.getCenterpoint());
-        for(Ball ball:balls) {
-            ball.paint(g);
+    public void snapshot(LevelSnapshot s) {
+        s.clear();
+        s.time = System.nanoTime();
+        s.background = bg;
+        s.screenWidth = SCREEN_WIDTH;
+        s.screenHeight = SCREEN_HEIGHT;
+        s.cameraX = prot.getCenterX();
+        s.cameraY = prot.getCenterY();
+        s.preCameraX = prot.getPreviousX();
+        s.preCameraY = prot.getPreviousY();
+        
+        s.add(prot);
+        BufferedImage carried = prot.getCarriedImage();
+        if(carried != null) {
+            float dx = carried.getWidth()/2;
+            float dy = prot.getRectangleHeight()/2+0.8f*carried.getHeight();
+            s.add(carried, prot.getCenterX()-dx, prot.getCenterY()-dy, prot.getPreviousX()-dx, prot.getPreviousY()-dy);
         }
-        for(Spikes spike:spikes) {
-            spike.paint(g);
+        // The camera moves at most one update's worth before the next snapshot.
+        int xstart = (int)Math.min(s.cameraX, s.preCameraX) - SCREEN_WIDTH/2;
+        int ystart = (int)Math.min(s.cameraY, s.preCameraY) - SCREEN_HEIGHT/2;
+        int xstop = (int)Math.max(s.cameraX, s.preCameraX) + SCREEN_WIDTH/2;
+        int ystop = (int)Math.max(s.cameraY, s.preCameraY) + SCREEN_HEIGHT/2;
+        blocks.snapshot(s, xstart, ystart, xstop, ystop);
+        for(int k = 0;k < activeBallCount;k++) {
+            int ball = activeBalls[k];
+            s.add(balls.getImage(ball), balls.getX(ball), balls.getY(ball), balls.getPreviousX(ball), balls.getPreviousY(ball));
         }
-        for(MovingPlatform platform:movingPlatforms) {
-            platform.paint(g);
+        colliders.clear();
+        triggers.findNear(xstart, ystart, xstop-xstart, ystop-ystart, colliders);
+        for(int i = 0;i < colliders.size();i++) {
+            s.add(colliders.getEntity(i));
         }
-        goal.paint(g);
-        g.drawString(prot.canLift()+","+prot.getTimeAirborne(), 700, 20);
-        g.drawString("Version 4.2", 300, 20);
-        g.drawString("Walking:"+prot.isWalking(), 900, 70);
-        g.drawString("Airborne:"+prot.isAirborne(), 900, 90);
-        g.drawString("Jumping:"+prot.isJumping(), 900, 110);
-        g.drawString("Direction:"+prot.getDirection(), 900, 130);
-        g.drawString(""+prot.getVelocity(), 300, 50);
-        g.drawString(""+prot.getCenterX()+","+prot.getCenterY(), 400, 90);
-        if(isFinished() && !isVictorious()) {
-            g.setColor(Color.RED);
-            g.fillRect(0,0,SCREEN_WIDTH,SCREEN_HEIGHT);
+        for(MovingPlatform platform:activePlatforms) {
+            s.add(platform);
         }
+        
+        prot.getAimVector(aim);
+        s.aimX = aim.x;
+        s.aimY = aim.y;
+        s.dead = isFinished() && !isVictorious();
+        s.canLift = prot.canLift();
+        s.timeAirborne = prot.getTimeAirborne();
+        s.walking = prot.isWalking();
+        s.airborne = prot.isAirborne();
+        s.jumping = prot.isJumping();
+        s.direction = prot.getDirection();
+        s.velocityX = prot.getVelocityX();
+        s.velocityY = prot.getVelocityY();
     }
 }
@@ -43,6 +43,9 @@ public class LevelConstants {
     
     public float GRAVITATIONAL_ACCELERATION;
     
+    public float ACTIVITY_WIDTH;
+    public float ACTIVITY_HEIGHT;
+    
     /**
      * Creates a new LevelConstants instance reading from the specified
      * input stream. If the stream isn't valid only default values
@@ -138,6 +141,10 @@ public class LevelConstants {
 	    				SPIKE_WIDTH = Float.parseFloat(st.nextToken());
 	    			} else if (constant.equals("SPIKE_HEIGHT")) {
 	    				SPIKE_HEIGHT = Float.parseFloat(st.nextToken());
+	    			} else if (constant.equals("ACTIVITY_WIDTH")) {
+	    				ACTIVITY_WIDTH = Float.parseFloat(st.nextToken());
+	    			} else if (constant.equals("ACTIVITY_HEIGHT")) {
+	    				ACTIVITY_HEIGHT = Float.parseFloat(st.nextToken());
 	    			} else if (constant.equals("GRAVITATIONAL_ACCELERATION")) {
 	    				GRAVITATIONAL_ACCELERATION = Float.parseFloat(st.nextToken());
 	    			} else {
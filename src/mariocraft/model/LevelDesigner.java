@@ -11,8 +11,11 @@ import java.util.HashSet;
 public class LevelDesigner {
     Protagonist protagonist;
     BlockManager blocks;
-    HashSet<Ball> balls;
+    BallSystem balls;
     HashSet<Spikes> spikes;
     HashSet<MovingPlatform> movingPlatforms;
     Goal goal;
+    float activityWidth;
+    float activityHeight;
+    long seed;
 }
@@ -1,13 +1,25 @@
 package mariocraft.model;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 
 import mariocraft.MarioCraft;
 import mariocraft.geom.Vector2D;
 
 /**
- * A class for generating levels.
+ * A class for generating levels. The next level can be loaded on a
+ * background thread while the current one is played, so that it is
+ * ready once it is needed.
  * 
  * @author Erik Odenman
  * @author Sebastian Olsson
@@ -17,44 +29,128 @@ public class LevelGenerator {
 	
 	private static final String LEVEL_PATH = "resources/levels/";
 	
-	private BufferedReader r;
+	/**
+	 * The levels of the game, in the order they are played.
+	 */
+	public static final String[] LEVELS = {"level1/", "level2/", "level3/", "level4/", "level5/", "level6/"};
+	
+	/*
+	 * The thread loading levels in the background. It does not keep
+	 * the program running.
+	 */
+	private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "Level loader");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+	
 	private String[] levels;
-	private Level nextLevel;
-	private int levelIndex;
+	private Future<Level> nextLevel;	// The level at levelIndex, being loaded or loaded
+	private int levelIndex;				// The number of levels handed out
+	private long seed;
 	
     /**
      * Creates a new LevelGenerator reading levels from the directories
-     * specified in the String[]
+     * specified in the String[], which play out differently every time
      * @param files The levels to be read
      */
 	public LevelGenerator(String[] files) {
+		this(files, System.nanoTime());
+	}
+	
+    /**
+     * Creates a new LevelGenerator reading levels from the directories
+     * specified in the String[]. The level at index i is generated with
+     * the seed seed+i, so that it plays out the same for the same input.
+     * @param files The levels to be read
+     * @param seed The seed of the first level
+     */
+	public LevelGenerator(String[] files, long seed) {
 		if (files.length == 0) {
 			throw new IllegalArgumentException("No levels found");
 		}
 		levels = files;
 		levelIndex = 0;
+		this.seed = seed;
 	}
 	
     /**
-     * Generate the next level. Should only be used if hasMoreLevels()
-     * returns true or a NullPointerException will be thrown
+     * Generate the next level on this thread, unless it is already being
+     * loaded. Should only be used if hasMoreLevels() returns true or an
+     * ArrayIndexOutOfBoundsException will be thrown
      * @throws IOException
      */
 	public void generateNext() throws IOException {
-		r = new BufferedReader(new InputStreamReader(MarioCraft.class.getResourceAsStream(LEVEL_PATH + levels[levelIndex]+"map.txt")));
-		
-		String line = r.readLine();
-		int len = line.length();
-		int lineNum = 0;
+		if (nextLevel == null) {
+			FutureTask<Level> task = new FutureTask<Level>(loader(levelIndex));
+			nextLevel = task;
+			task.run();
+		}
+	}
+	
+    /**
+     * Start loading the next level in the background, unless there are
+     * no more levels or it is already being loaded.
+     */
+	public void preloadNext() {
+		if (nextLevel == null && hasMoreLevels()) {
+			nextLevel = LOADER.submit(loader(levelIndex));
+		}
+	}
+	
+	/*
+	 * Returns a task generating the level at the specified index
+	 */
+	private Callable<Level> loader(final int index) {
+		return new Callable<Level>() {
+			public Level call() throws IOException {
+				return generate(levels[index], seed + index);
+			}
+		};
+	}
+	
+	/*
+	 * Generate the level in the specified directory
+	 */
+	private static Level generate(String level, long seed) throws IOException {
+		BufferedReader r = new BufferedReader(new InputStreamReader(MarioCraft.class.getResourceAsStream(LEVEL_PATH + level + "map.txt")));
+		try {
+			LevelConstants lc = new LevelConstants(MarioCraft.class.getResourceAsStream(LEVEL_PATH + level + "mechanics.txt"));
+			return generate(r, lc, seed);
+		} finally {
+			r.close();
+		}
+	}
+	
+    /**
+     * Generate a level from a map, where each character is a tile of
+     * the level, using the specified constants. The random choices made
+     * in the level are decided by the seed.
+     * @param map The map of the level, one row per line
+     * @param lc The constants of the level
+     * @param seed The seed of the level
+     * @return The generated level
+     * @throws IOException
+     */
+	public static Level generate(BufferedReader map, LevelConstants lc, long seed) throws IOException {
+		// The whole map is read first, since the blocks are kept in a grid of its size
+		ArrayList<String> lines = new ArrayList<String>();
+		String line;
+		while ((line = map.readLine()) != null) {
+			lines.add(line);
+		}
+		int len = lines.get(0).length();
 		
-		LevelConstants lc = new LevelConstants(MarioCraft.class.getResourceAsStream(LEVEL_PATH + levels[levelIndex]+"mechanics.txt"));
 		final float BLOCK_SIZE = lc.BLOCK_SIZE;
-		
-		BlockManager bm = new BlockManager(line.length(), BLOCK_SIZE);
+		BlockManager bm = new BlockManager(len, lines.size(), BLOCK_SIZE);
 		LevelDesigner next = new LevelDesigner();
-		HashSet<Ball> balls = new HashSet<Ball>();
-		HashSet<Spikes> spikes = new HashSet<Spikes>();
-		HashSet<MovingPlatform> platforms = new HashSet<MovingPlatform>();
+		// Linked sets are iterated in the order of the map, so that each run is the same
+		BallSystem balls = new BallSystem();
+		HashSet<Spikes> spikes = new LinkedHashSet<Spikes>();
+		HashSet<MovingPlatform> platforms = new LinkedHashSet<MovingPlatform>();
+		Random random = new Random(seed);
 		MovingPattern[] patterns = new MovingPattern[lc.MOVING_PLATFORM_WIDTH.size()];
 		for(int i = 0;i < patterns.length;i++) {
 		    int patternLength = lc.MOVING_PLATFORM_PATTERN_X.get(i).length;
@@ -68,7 +164,8 @@ public class LevelGenerator {
 		}
 		int indexPlatform = 0;
 		
-		do {
+		for (int lineNum = 0; lineNum < lines.size(); lineNum++) {
+			line = lines.get(lineNum);
 			if (line.length() > len) {
 				throw new IllegalArgumentException("Line exceeds length of level");
 			}
@@ -76,16 +173,16 @@ public class LevelGenerator {
 			for (int i = 0; i < chars.length; i++) {
 			    float x = BLOCK_SIZE*i+BLOCK_SIZE/2;
 	            float y = BLOCK_SIZE*lineNum+BLOCK_SIZE/2;
-				if (chars[i] == '#') { // It's a block
-					bm.addBlockAtIndex(new Block(x, y, BLOCK_SIZE, BLOCK_SIZE), i);
+				if (chars[i] == '#') { // It's a block, kept as a tile
+					bm.addTile(i, lineNum);
 				} else if (chars[i] == '0') { // Boulder
-                    bm.addBoulderAtIndex(new Boulder(x, y, BLOCK_SIZE, BLOCK_SIZE), i);
+                    bm.addBoulder(new Boulder(x, y, BLOCK_SIZE, BLOCK_SIZE));
                 } else if (chars[i] == 'P') { // Protagonist
 					next.protagonist = new Protagonist(x, y, lc.PROTAGONIST_WIDTH, lc.PROTAGONIST_HEIGHT, lc.PROTAGONIST_SPEED_WALK, lc.PROTAGONIST_SPEED_JUMP, lc.PROTAGONIST_RANGE, BLOCK_SIZE);
 				} else if (chars[i] == 'G') { // Goal
 					next.goal = new Goal(x, y, lc.GOAL_WIDTH, lc.GOAL_HEIGHT);
 				} else if (chars[i] == 'B') { // Ball
-                    balls.add(new Ball(x, y, lc.BALL_WIDTH, lc.BALL_HEIGHT, new Vector2D(lc.BALL_SPEED_X, lc.BALL_SPEED_Y)));
+                    balls.add(x, y, lc.BALL_WIDTH, lc.BALL_HEIGHT, new Vector2D(lc.BALL_SPEED_X, lc.BALL_SPEED_Y), new Random(random.nextLong()));
                 } else if (chars[i] == '^') { // Upwards pointing spikes
                     spikes.add(new Spikes(x, y+(BLOCK_SIZE-lc.SPIKE_HEIGHT)/2, lc.SPIKE_WIDTH, lc.SPIKE_HEIGHT, Direction.UP));
                 } else if (chars[i] == 'V') { // Downwards pointing spikes
@@ -99,16 +196,18 @@ public class LevelGenerator {
                     indexPlatform++;
                 }
 			}
-			lineNum++;
-		} while ((line = r.readLine()) != null);
+		}
+		bm.mergeTiles();
+		balls.refit();
 		
 		next.blocks = bm;
 		next.balls = balls;
 		next.spikes = spikes;
 		next.movingPlatforms = platforms;
-		nextLevel = new Level(next);
-		
-		levelIndex++;
+		next.seed = seed;
+		next.activityWidth = lc.ACTIVITY_WIDTH;
+		next.activityHeight = lc.ACTIVITY_HEIGHT;
+		return new Level(next);
 	}
 	
     /**
@@ -124,17 +223,39 @@ public class LevelGenerator {
      * @return true if the next level has finished loading
      */
 	public boolean hasLoadedNext() {
-		return nextLevel != null;
+		return nextLevel != null && nextLevel.isDone();
 	}
 	
     /**
-     * Returns the next level
+     * Returns the next level, waiting for it to finish loading if needed.
+     * If it has not started loading, it is generated on this thread.
      * @return the next level
+     * @throws IOException if the level could not be read
      */
-	public Level getNextLevel() {
-		Level next = nextLevel;
+	public Level getNextLevel() throws IOException {
+		generateNext();
+		Future<Level> next = nextLevel;
 		nextLevel = null;
-		return next;
+		levelIndex++;
+		try {
+			return next.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading level");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+	
+    /**
+     * Returns the directory of the level handed out last
+     * @return the directory of the level handed out last
+     */
+	public String levelName() {
+		return levels[levelIndex - 1];
 	}
 	
     /**
@@ -150,6 +271,7 @@ public class LevelGenerator {
      */
 	public void resetLevel() {
 		if (levelIndex != 0) {
+			cancelNext();
 			levelIndex--;
 		}
 	}
@@ -158,7 +280,17 @@ public class LevelGenerator {
      * Resets the game, making all the levels being read again
      */
 	public void resetGame() {
+	    cancelNext();
 	    levelIndex = 0;
-	    nextLevel = null;
     }
+	
+	/*
+	 * Forget about the level being loaded, if any
+	 */
+	private void cancelNext() {
+		if (nextLevel != null) {
+			nextLevel.cancel(false);
+			nextLevel = null;
+		}
+	}
 }
@@ -0,0 +1,173 @@
+package mariocraft.model;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+/**
+ * What a level looked like after an update: a list of the images to
+ * draw with their previous and current locations, the location of the
+ * camera, and the state shown in the corner of the screen. A level
+ * fills in a snapshot after every update, so that it can be painted
+ * by another thread while the level goes on updating.
+ * 
+ * @author Sebastian Olsson
+ */
+public class LevelSnapshot {
+    long time;           // When the snapshot was taken, as given by System.nanoTime().
+    BackgroundManager background;
+    int screenWidth;
+    int screenHeight;
+    
+    float cameraX;       // The center of the protagonist.
+    float cameraY;
+    float preCameraX;
+    float preCameraY;
+    
+    int count;           // The number of images to draw.
+    BufferedImage[] images;
+    float[] x;           // Top left corners of the images.
+    float[] y;
+    float[] preX;
+    float[] preY;
+    
+    float aimX;          // Where a boulder would be placed, relative to the protagonist.
+    float aimY;
+    boolean dead;
+    boolean canLift;
+    int timeAirborne;
+    boolean walking;
+    boolean airborne;
+    boolean jumping;
+    Direction direction;
+    float velocityX;
+    float velocityY;
+    
+    private Camera camera;
+    
+    /**
+     * Creates an empty snapshot.
+     */
+    public LevelSnapshot() {
+        camera = new Camera();
+        images = new BufferedImage[64];
+        x = new float[64];
+        y = new float[64];
+        preX = new float[64];
+        preY = new float[64];
+    }
+    
+    /**
+     * Empties the snapshot so that a level can fill it in anew.
+     */
+    void clear() {
+        for(int i = 0;i < count;i++) {
+            images[i] = null;
+        }
+        count = 0;
+    }
+    
+    /**
+     * Adds an image that does not move.
+     */
+    void add(BufferedImage image, float x, float y) {
+        add(image, x, y, x, y);
+    }
+    
+    /**
+     * Adds an image that moved from (preX, preY) to (x, y) during the update.
+     */
+    void add(BufferedImage image, float x, float y, float preX, float preY) {
+        if(count == images.length) {
+            grow();
+        }
+        images[count] = image;
+        this.x[count] = x;
+        this.y[count] = y;
+        this.preX[count] = preX;
+        this.preY[count] = preY;
+        count++;
+    }
+    
+    /**
+     * Adds an entity at its current location.
+     */
+    void add(Entity entity) {
+        add(entity.getImage(), entity.getCenterX()-entity.getRectangleWidth()/2, entity.getCenterY()-entity.getRectangleHeight()/2);
+    }
+    
+    /**
+     * Adds a sprite, which moves from its previous location to its current one.
+     */
+    void add(Sprite sprite) {
+        float dx = sprite.getRectangleWidth()/2;
+        float dy = sprite.getRectangleHeight()/2;
+        add(sprite.getImage(), sprite.getCenterX()-dx, sprite.getCenterY()-dy, sprite.getPreviousX()-dx, sprite.getPreviousY()-dy);
+    }
+    
+    /**
+     * Doubles the room for images.
+     */
+    private void grow() {
+        int n = images.length*2;
+        BufferedImage[] newImages = new BufferedImage[n];
+        System.arraycopy(images, 0, newImages, 0, count);
+        images = newImages;
+        x = copyOf(x, n);
+        y = copyOf(y, n);
+        preX = copyOf(preX, n);
+        preY = copyOf(preY, n);
+    }
+    
+    private float[] copyOf(float[] a, int n) {
+        float[] b = new float[n];
+        System.arraycopy(a, 0, b, 0, count);
+        return b;
+    }
+    
+    /**
+     * @return When the snapshot was taken, as given by System.nanoTime()
+     */
+    public long getTime() {
+        return time;
+    }
+    
+    /**
+     * Paints the level as it looks between the previous and the current update.
+     * 
+     * @param alpha How far the level has come between the previous and the current update
+     */
+    public void paint(Graphics g, float alpha) {
+        if(background == null) {
+            return;
+        }
+        float viewX = preCameraX+(cameraX-preCameraX)*alpha;
+        float viewY = preCameraY+(cameraY-preCameraY)*alpha;
+        camera.setScreenSize(screenWidth, screenHeight);
+        camera.lookAt(viewX, viewY);
+        background.paint(g, camera.getLeft(), camera.getTop());
+        camera.apply(g);
+        for(int i = 0;i < count;i++) {
+            float ix = preX[i]+(x[i]-preX[i])*alpha;
+            float iy = preY[i]+(y[i]-preY[i])*alpha;
+            g.drawImage(images[i], (int)ix, (int)iy, null);
+        }
+        g.drawLine((int)(viewX+aimX),
+                   (int)(viewY+aimY),
+                   (int)(viewX+aimX),
+                   (int)(viewY+aimY));
+        camera.restore(g);
+        g.drawString(canLift+","+timeAirborne, 700, 20);
+        g.drawString("Version 4.2", 300, 20);
+        g.drawString("Walking:"+walking, 900, 70);
+        g.drawString("Airborne:"+airborne, 900, 90);
+        g.drawString("Jumping:"+jumping, 900, 110);
+        g.drawString("Direction:"+direction, 900, 130);
+        g.drawString("("+velocityX+","+velocityY+")", 300, 50);
+        g.drawString(""+cameraX+","+cameraY, 400, 90);
+        if(dead) {
+            g.setColor(Color.RED);
+            g.fillRect(0,0,screenWidth,screenHeight);
+        }
+    }
+}
@@ -1,22 +1,30 @@
 package mariocraft.model;
 
+import java.awt.geom.Rectangle2D;
+
 import mariocraft.geom.Vector2D;
 
 /**
  * A specific order of movements, defined by a ordered set of velocity vectors.
- * 
+ * The pattern repeats itself, so where it has taken a platform after any
+ * number of updates can be told without going through them one by one:
+ * the displacement at the start of each velocity is summed up in advance,
+ * and the velocity at a point in the cycle is found by a binary search.
+ *
  * @author Sebastian Olsson
  * @version 2011-04-22
  */
 public class MovingPattern {
     private Vector2D[] velocities;
     private int[] periods; // Determines the amount of time for each velocity.
-    private int current; // Index of current velocity. 
-    private int counter; // Elapsed time of the current velocity.
+    private int cycle;     // The time it takes to go through all velocities.
+    private int[] start;   // When in the cycle each velocity starts; start[n] is the cycle.
+    private float[] sumX;  // The displacement when each velocity starts; sumX[n] is that of the cycle.
+    private float[] sumY;
 
     /**
      * Creates a moving pattern.
-     * 
+     *
      * @param velocities The ordered velocities
      * @param periods The time period for each velocity
      */
@@ -28,22 +36,95 @@ public class MovingPattern {
             }
         }
         this.velocities = velocities;
-        current = 0;
-        counter = 0;
+        int n = periods.length;
+        start = new int[n+1];
+        sumX = new float[n+1];
+        sumY = new float[n+1];
+        for(int i = 0;i < n;i++) {
+            start[i+1] = start[i]+periods[i];
+            sumX[i+1] = sumX[i]+velocities[i].x*periods[i];
+            sumY[i+1] = sumY[i]+velocities[i].y*periods[i];
+        }
+        cycle = start[n];
     }
-    
+
     /**
-     * Updates the pattern, returns the current velocity.
+     * Returns the velocity of the pattern during an update. Update 1 is
+     * the first one; the first velocity lasts one update less than its
+     * period the first time around.
+     *
+     * @param tick The number of the update
+     * @return The velocity during the update
      */
-    public Vector2D update() {
-        counter++;
-        if(counter == periods[current]) {
-            current++;
-            counter = 0;
+    public Vector2D getVelocity(int tick) {
+        return velocities[velocityAt(tick%cycle)];
+    }
+
+    /**
+     * Returns how far the pattern moves in x during the given number
+     * of updates.
+     */
+    public float getDisplacementX(int ticks) {
+        return sumUpTo(ticks+1, sumX, true)-velocities[0].x;
+    }
+
+    /**
+     * Returns how far the pattern moves in y during the given number
+     * of updates.
+     */
+    public float getDisplacementY(int ticks) {
+        return sumUpTo(ticks+1, sumY, false)-velocities[0].y;
+    }
+
+    /**
+     * Returns the smallest rectangle that contains every displacement
+     * of the pattern during one cycle. The displacement changes linearly
+     * while a velocity lasts, so only the updates just before a velocity
+     * changes and update 0 need to be looked at.
+     */
+    public Rectangle2D.Float getBounds() {
+        float minX = getDisplacementX(0);
+        float minY = getDisplacementY(0);
+        float maxX = minX;
+        float maxY = minY;
+        for(int i = 1;i < start.length;i++) {
+            float x = getDisplacementX(start[i]-1);
+            float y = getDisplacementY(start[i]-1);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
         }
-        if(current == periods.length) {
-            current = 0;
+        return new Rectangle2D.Float(minX, minY, maxX-minX, maxY-minY);
+    }
+
+    /**
+     * Sums the velocities of updates 0 to ticks-1 along one axis, update 0
+     * having the first velocity: every whole cycle, then the displacement
+     * at the start of the current velocity, then the current velocity
+     * for the time it has lasted.
+     */
+    private float sumUpTo(int ticks, float[] sum, boolean alongX) {
+        int time = ticks%cycle;
+        int i = velocityAt(time);
+        float v = alongX ? velocities[i].x : velocities[i].y;
+        return ticks/cycle*sum[periods.length]+sum[i]+v*(time-start[i]);
+    }
+    
+    /**
+     * Returns the index of the velocity at a point in the cycle.
+     */
+    private int velocityAt(int time) {
+        int low = 0;
+        int high = periods.length-1;
+        while(low < high) {
+            int mid = (low+high+1) >>> 1;
+            if(start[mid] <= time) {
+                low = mid;
+            } else {
+                high = mid-1;
+            }
         }
-        return velocities[current];
+        return low;
     }
 }
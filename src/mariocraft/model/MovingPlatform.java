@@ -1,8 +1,5 @@
 package mariocraft.model;
 
-import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 
@@ -17,12 +14,15 @@ import mariocraft.util.PhysicsUtil;
  * @author Sebastian Olsson
  * @version 2011-05-03
  */
-@SuppressWarnings("serial")
 public class MovingPlatform extends Sprite
                             implements Corporal{
-    private Point2D.Float relativeLocation;
     private MovingPattern movement;
     private BufferedImage image;
+    private float originX;     // Where the platform was before the first update.
+    private float originY;
+    private float targetX;     // Where the next move takes the platform.
+    private float targetY;
+    private Rectangle2D.Float range;
     
     /**
      * Creates a moving platform.
@@ -36,32 +36,61 @@ public class MovingPlatform extends Sprite
      */
     public MovingPlatform(float x, float y, float width, float height, MovingPattern pattern) {
         super(x, y, width, height, new Vector2D(0, 0));
-        relativeLocation = new Point2D.Float(0,0);
         image = ImageUtil.resize(Images.MOVING_PLATFORM, (int)getRectangleWidth(), (int)getRectangleHeight());
         this.movement = pattern;
+        originX = getRectangle().x;
+        originY = getRectangle().y;
+        targetX = originX;
+        targetY = originY;
+        Rectangle2D.Float bounds = pattern.getBounds();
+        range = new Rectangle2D.Float(originX+bounds.x, originY+bounds.y,
+                                      width+bounds.width, height+bounds.height);
     }
     
     /**
-     * Updates the velocity.
+     * Updates the velocity so that the next move takes the platform to where
+     * the pattern has taken it after the given number of updates. If the
+     * platform has not been updated for a while, it catches up in one move.
+     * 
+     * @param tick The number of the update
      */
-    public void updateMovement() {
-        velocity = movement.update();
+    public void updateMovement(int tick) {
+        targetX = getXAt(tick);
+        targetY = getYAt(tick);
+        setVelocity(targetX-getRectangle().x, targetY-getRectangle().y);
     }
     
     /**
-     * @return The current velocity.
+     * Moves the platform by its velocity. It is then put exactly where its
+     * pattern has taken it, so that rounding errors do not build up.
      */
-    public Vector2D getVelocity() {
-        return velocity;
+    @Override
+    public void move() {
+        super.move();
+        setLocation(targetX, targetY);
     }
     
     /**
-     * Sets the relative coordinates.
-     * 
-     * @param subjective The location of the protagonist
+     * @param tick The number of an update
+     * @return The x-coordinate of the left edge of the platform after the update
+     */
+    public float getXAt(int tick) {
+        return originX+movement.getDisplacementX(tick);
+    }
+    
+    /**
+     * @param tick The number of an update
+     * @return The y-coordinate of the top edge of the platform after the update
+     */
+    public float getYAt(int tick) {
+        return originY+movement.getDisplacementY(tick);
+    }
+    
+    /**
+     * @return The rectangle that the platform stays within while it moves
      */
-    public void setRelativeLocation(Point2D.Float subjective) {
-        relativeLocation.setLocation(getCenterX()-subjective.x, getCenterY()-subjective.y);
+    public Rectangle2D.Float getRange() {
+        return range;
     }
     
     /**
@@ -73,15 +102,10 @@ public class MovingPlatform extends Sprite
     }
     
     /**
-     * Draws the ball.
+     * @return The image of the platform
      */
     @Override
-    public void paint(Graphics g) {
-        int topLeftX = (int)(relativeLocation.x-getRectangleWidth()/2);
-        int topLeftY = (int)(relativeLocation.y-getRectangleHeight()/2);
-        ((Graphics2D)g).drawImage(image,
-                                  null,
-                                  600+topLeftX,
-                                  400+topLeftY);
+    public BufferedImage getImage() {
+        return image;
     }
 }
@@ -1,9 +1,8 @@
 package mariocraft.model;
 
-import java.awt.Graphics;
-import java.awt.Graphics2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import mariocraft.geom.MutableVector2D;
 import mariocraft.geom.Vector2D;
 import mariocraft.model.attributes.Corporal;
 import mariocraft.model.attributes.Gravitated;
@@ -17,7 +16,6 @@ import mariocraft.util.PhysicsUtil;
  * @author Sebastian Olsson
  * @version 2011-05-03
  */
-@SuppressWarnings("serial")
 public class Protagonist extends Sprite
                          implements Gravitated,
                                     Corporal {	
@@ -27,7 +25,7 @@ public class Protagonist extends Sprite
     private Condition condition;
     private AnimationManager animations;
     private BufferedImage boulder;
-    private Entity ground;
+    private Contact ground;     // What the protagonist stands on, filled in when it moves.
     
     /**
      * Creates a protagonist.
@@ -45,6 +43,7 @@ public class Protagonist extends Sprite
         this.speedJump = speedJump;
         this.range = range;
         condition = new Condition();
+        ground = new Contact();
         animations = new AnimationManager((int)width, (int)height);
         boulder = ImageUtil.resize(Images.BOULDER, (int)blockSize, (int)blockSize);
         detach();
@@ -62,7 +61,7 @@ public class Protagonist extends Sprite
      * Makes the protagonist start moving to the left.
      */
     public void moveLeft() {
-        setVelocity(new Vector2D(-speedWalk, velocity.y));
+        setVelocity(-speedWalk, vy);
         condition.direction = Direction.LEFT;
     }
     
@@ -70,7 +69,7 @@ public class Protagonist extends Sprite
      * Makes the protagonist start moving to the right.
      */
     public void moveRight() {
-        setVelocity(new Vector2D(speedWalk, velocity.y));
+        setVelocity(speedWalk, vy);
         condition.direction = Direction.RIGHT;
     }
     
@@ -78,14 +77,14 @@ public class Protagonist extends Sprite
      * Halts the protagonist's velocity in the x-direction.
      */
     public void halt() {
-        setVelocity(new Vector2D(0, velocity.y));
+        setVelocity(0, vy);
     }
     
     /**
      * The protagonist executes a jump.
      */
     public void jump() {
-        setVelocity(new Vector2D(velocity.x, -speedJump));
+        setVelocity(vx, -speedJump);
         detach();
     }
     
@@ -95,7 +94,7 @@ public class Protagonist extends Sprite
     @Override
     public void gravitate() {
         if(isAirborne()) {
-            velocity = velocity.add(GRAVITY);
+            accelerate(GRAVITY.x, GRAVITY.y);
         }
     }
     
@@ -108,23 +107,24 @@ public class Protagonist extends Sprite
     }
     
     /**
-     * Sets the entity that the protagonist is standing on.
+     * Makes the protagonist stand on nothing.
      */
-    public void setGround(Entity entity) {
-        ground = entity;
+    public void detach() {
+        ground.clear();
     }
     
     /**
-     * Makes the protagonist stand on nothing.
+     * @return The entity that the protagonist is currently standing on,
+     *         or null if it stands on a tile or on nothing.
      */
-    public void detach() {
-        setGround(null);
+    public Entity getGround() {
+        return ground.getEntity();
     }
     
     /**
-     * @return The entity that the protagonist is currently standing on.
+     * @return The contact with what the protagonist is currently standing on.
      */
-    public Entity getGround() {
+    public Contact getGroundContact() {
         return ground;
     }
     
@@ -223,12 +223,22 @@ public class Protagonist extends Sprite
      * @return A vector representing the direction and distance of boulder placement
      */
     public Vector2D getAimVector() {
+        return getAimVector(new MutableVector2D()).toVector();
+    }
+    
+    /**
+     * Sets a vector to the direction and distance of boulder placement.
+     * 
+     * @param aim The vector to set
+     * @return The vector
+     */
+    public MutableVector2D getAimVector(MutableVector2D aim) {
         float dy = Math.abs(getRectangleHeight()-getRectangleWidth())/2;
-        Vector2D aim = condition.getAim().scalarMultiply(range);
+        condition.getAim(aim).scalarMultiply(range);
         if(aim.y < 0) {
-            aim = aim.add(new Vector2D(0,-dy));
+            aim.add(0,-dy);
         } else if(aim.y > 0) {
-            aim = aim.add(new Vector2D(0,dy));
+            aim.add(0,dy);
         }
         return aim;
     }
@@ -252,30 +262,17 @@ public class Protagonist extends Sprite
     }
     
     /**
-     * Draws the protagonist.
+     * @return The image of the protagonist
      */
     @Override
-    public void paint(Graphics g) {
-        ((Graphics2D)g).drawImage(animations.getImage(),
-                                  null,
-                                  600-(int)getRectangleWidth()/2,
-                                  400-(int)getRectangleHeight()/2);
-        if(condition.carrying) {
-        ((Graphics2D)g).drawImage(boulder,
-                                  null,
-                                  600-(int)(boulder.getWidth()/2),
-                                  400-(int)(getRectangleHeight()/2+0.8*boulder.getHeight()));
-        }
-        drawAim(g);
+    public BufferedImage getImage() {
+        return animations.getImage();
     }
     
     /**
-     * Draws a tiny point which shows the location of the supposedly placed boulder.
+     * @return The image of the boulder being carried, or null if there is none
      */
-    private void drawAim(Graphics g) {
-        g.drawLine(600+(int)getAimVector().x,
-                   400+(int)getAimVector().y,
-                   600+(int)getAimVector().x,
-                   400+(int)getAimVector().y);
+    public BufferedImage getCarriedImage() {
+        return condition.carrying ? boulder : null;
     }
 }
@@ -1,8 +1,5 @@
 package mariocraft.model;
 
-import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 
@@ -14,10 +11,8 @@ import mariocraft.util.ImageUtil;
  * @author Sebastian Olsson
  * @version 2011-04-22
  */
-@SuppressWarnings("serial")
 public class Spikes extends Entity {
 	
-    private Point2D.Float relativeLocation;
     private BufferedImage image;
     
     /**
@@ -29,15 +24,6 @@ public class Spikes extends Entity {
         this(rectangle.x, rectangle.y, rectangle.width, rectangle.height, direction);
     }
     
-    /**
-     * Sets the relative coordinates.
-     * 
-     * @param subjective The location of the protagonist
-     */
-    public void setRelativeLocation(Point2D.Float subjective) {                                 //TODO
-        relativeLocation.setLocation(getCenterX()-subjective.x, getCenterY()-subjective.y);
-    }
-    
     /**
      * Creates a static set of spikes.
      * 
@@ -48,7 +34,6 @@ public class Spikes extends Entity {
      */
     public Spikes(float x, float y, float width, float height, Direction direction) {
         super(x, y, width, height);
-        relativeLocation = new Point2D.Float(0,0);
         if(direction == Direction.LEFT) {
             image = Images.SPIKES_LEFT;
         } else if(direction == Direction.RIGHT) {
@@ -62,15 +47,10 @@ public class Spikes extends Entity {
     }
     
     /**
-     * Draws the spikes.
+     * @return The image of the spikes
      */
     @Override
-    public void paint(Graphics g) {
-        int topLeftX = (int)(relativeLocation.x-getRectangleWidth()/2);
-        int topLeftY = (int)(relativeLocation.y-getRectangleHeight()/2);
-        ((Graphics2D)g).drawImage(image,
-                                  null,
-                                  600+topLeftX,
-                                  400+topLeftY);
+    public BufferedImage getImage() {
+        return image;
     }
 }
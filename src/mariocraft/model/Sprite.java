@@ -2,22 +2,22 @@ package mariocraft.model;
 
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.awt.Graphics;
 
 import mariocraft.geom.Vector2D;
 import mariocraft.util.PhysicsUtil;
 
 /**
  * A sprite is a moving object. It can move about a region and
- * has an inconstant velocity. 
+ * has an inconstant velocity. The velocity is kept as two floats
+ * and changed in place, so that moving a sprite creates no objects.
  * 
  * @author Sebelino
  * @version 2011-04-20
  */
-@SuppressWarnings("serial")
 public abstract class Sprite extends Entity{
     protected Point2D.Float preLocation;
-    protected Vector2D velocity;
+    protected float vx;     // The velocity.
+    protected float vy;
 
     /**
      * Creates a general sprite.
@@ -32,7 +32,8 @@ public abstract class Sprite extends Entity{
     public Sprite(float x, float y, float width, float height, Vector2D velocity) {
         super(x, y, width, height);
         preLocation = new Point2D.Float(x, y);
-        this.velocity = velocity;
+        vx = velocity.x;
+        vy = velocity.y;
     }
 
     /**
@@ -50,25 +51,40 @@ public abstract class Sprite extends Entity{
     }
     
     /**
-     * Sets the previous location.
+     * Sets the previous location to the current location. Should be called
+     * once at the start of every update.
      */
-    private void updatePreLocation() {
+    public void updatePreLocation() {
         preLocation.x = getCenterX();
         preLocation.y = getCenterY();
     }
     
     /**
-     * @return The velocity of the moving sprite
+     * @return The velocity of the moving sprite, as a new vector
      */
     public Vector2D getVelocity() {
-        return velocity;
+        return new Vector2D(vx, vy);
+    }
+    
+    /**
+     * @return The x-component of the velocity
+     */
+    public float getVelocityX() {
+        return vx;
+    }
+    
+    /**
+     * @return The y-component of the velocity
+     */
+    public float getVelocityY() {
+        return vy;
     }
     
     /**
      * @return The speed, i.e. magnitude of the velocity
      */
     public float getSpeed() {
-        return velocity.norm();
+        return (float)Math.sqrt(vx*vx+vy*vy);
     }
     
     /**
@@ -87,36 +103,52 @@ public abstract class Sprite extends Entity{
      * @param velocity New velocity
      */
     public void setVelocity(Vector2D velocity) {
-        this.velocity = velocity;
+        setVelocity(velocity.x, velocity.y);
     }
     
     /**
-     * Moves the sprite in a direction and distance specified by the given vector.
+     * Sets the velocity.
      * 
-     * @param Added position to the sprite
+     * @param vx The new x-component
+     * @param vy The new y-component
      */
-    public void move(Vector2D addition) {
-        updatePreLocation(); 
-        addLocation(addition);
+    public void setVelocity(float vx, float vy) {
+        this.vx = vx;
+        this.vy = vy;
     }
     
     /**
-     * Moves the object, i.e. adds the velocity to the current position.
+     * Adds to the velocity.
+     * 
+     * @param dvx Added to the x-component
+     * @param dvy Added to the y-component
      */
-    public void move() {
-        move(velocity);
+    public void accelerate(float dvx, float dvy) {
+        vx += dvx;
+        vy += dvy;
     }
     
     /**
-     * Moves the sprite to its previous location.
+     * Moves the sprite in a direction and distance specified by the given vector.
+     * 
+     * @param Added position to the sprite
      */
-    public final void retreat() {
-        move(velocity.reverse());
-//        setLocation(preLocation.x, preLocation.y);
+    public void move(Vector2D addition) {
+        move(addition.x, addition.y);
     }
     
     /**
-     * {@inheritDoc Entity}
+     * Moves the sprite by (dx, dy).
      */
-    public abstract void paint(Graphics g);
+    public void move(float dx, float dy) {
+        setLocation(rectangle.x+dx, rectangle.y+dy);
+    }
+    
+    /**
+     * Moves the object, i.e. adds the velocity to the current position.
+     */
+    public void move() {
+        move(vx, vy);
+    }
+
 }
@@ -0,0 +1,170 @@
+package mariocraft.model;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An index of entities that never move, such as spikes and goals, or
+ * that only move within fixed bounds. The entities are kept in a grid,
+ * each in the cell of the center of its bounds, so that only the cells
+ * near a rectangle have to be looked at. The grid is built once and
+ * stored compactly: the entities of all cells lie in one array, cell
+ * after cell, and each cell knows where its entities start.
+ *
+ * @author Sebastian Olsson
+ */
+public class StaticIndex {
+    private float cellSize;
+    private float originX;     // The top left corner of the grid.
+    private float originY;
+    private int columns;
+    private int rows;
+    private int[] cellStart;   // The entities of cell c are at cellStart[c] to cellStart[c+1]-1.
+    private Entity[] entries;
+    private float[] boundsX;   // The bounds of the entries.
+    private float[] boundsY;
+    private float[] boundsWidth;
+    private float[] boundsHeight;
+    private float reachX;      // How far an entity may stick out from its cell.
+    private float reachY;
+
+    /**
+     * Builds an index of entities.
+     *
+     * @param entities The entities, which must not move afterwards
+     * @param cellSize The size of a cell
+     */
+    public StaticIndex(List<? extends Entity> entities, float cellSize) {
+        this(entities, rectanglesOf(entities), cellSize);
+    }
+
+    /**
+     * Builds an index of entities that move within fixed bounds.
+     *
+     * @param entities The entities
+     * @param bounds The bounds of each entity, in the same order
+     * @param cellSize The size of a cell
+     */
+    public StaticIndex(List<? extends Entity> entities, List<Rectangle2D.Float> bounds, float cellSize) {
+        this.cellSize = cellSize;
+        float maxX = 0;
+        float maxY = 0;
+        if(!bounds.isEmpty()) {
+            originX = Float.POSITIVE_INFINITY;
+            originY = Float.POSITIVE_INFINITY;
+            maxX = Float.NEGATIVE_INFINITY;
+            maxY = Float.NEGATIVE_INFINITY;
+        }
+        for(Rectangle2D.Float r:bounds) {
+            originX = Math.min(originX, (float)r.getCenterX());
+            originY = Math.min(originY, (float)r.getCenterY());
+            maxX = Math.max(maxX, (float)r.getCenterX());
+            maxY = Math.max(maxY, (float)r.getCenterY());
+            reachX = Math.max(reachX, r.width/2);
+            reachY = Math.max(reachY, r.height/2);
+        }
+        columns = (int)((maxX-originX)/cellSize)+1;
+        rows = (int)((maxY-originY)/cellSize)+1;
+
+        // Count the entities of each cell, then place them after those of the cells before.
+        cellStart = new int[columns*rows+1];
+        for(Rectangle2D.Float r:bounds) {
+            cellStart[cellOf(r)+1]++;
+        }
+        for(int c = 0;c < columns*rows;c++) {
+            cellStart[c+1] += cellStart[c];
+        }
+        int n = entities.size();
+        entries = new Entity[n];
+        boundsX = new float[n];
+        boundsY = new float[n];
+        boundsWidth = new float[n];
+        boundsHeight = new float[n];
+        int[] filled = new int[columns*rows];
+        for(int i = 0;i < n;i++) {
+            Rectangle2D.Float r = bounds.get(i);
+            int c = cellOf(r);
+            int at = cellStart[c]+filled[c];
+            entries[at] = entities.get(i);
+            boundsX[at] = r.x;
+            boundsY[at] = r.y;
+            boundsWidth[at] = r.width;
+            boundsHeight[at] = r.height;
+            filled[c]++;
+        }
+    }
+
+    /**
+     * @return The number of entities in the index
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Finds the entities whose bounds intersect or touch a rectangle and
+     * adds them to the buffer.
+     *
+     * @param x The left edge of the rectangle
+     * @param y The top edge of the rectangle
+     * @param w The width of the rectangle
+     * @param h The height of the rectangle
+     * @param out The buffer to add the entities to
+     */
+    public void findNear(float x, float y, float w, float h, ColliderBuffer out) {
+        int col0 = column(x-reachX);
+        int col1 = column(x+w+reachX);
+        int row0 = row(y-reachY);
+        int row1 = row(y+h+reachY);
+        for(int row = row0;row <= row1;row++) {
+            for(int col = col0;col <= col1;col++) {
+                int c = row*columns+col;
+                for(int i = cellStart[c];i < cellStart[c+1];i++) {
+                    if(boundsX[i] <= x+w && boundsX[i]+boundsWidth[i] >= x
+                            && boundsY[i] <= y+h && boundsY[i]+boundsHeight[i] >= y) {
+                        out.add(entries[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    private int cellOf(Rectangle2D.Float r) {
+        return row((float)r.getCenterY())*columns+column((float)r.getCenterX());
+    }
+
+    private static List<Rectangle2D.Float> rectanglesOf(List<? extends Entity> entities) {
+        List<Rectangle2D.Float> rectangles = new ArrayList<Rectangle2D.Float>(entities.size());
+        for(Entity e:entities) {
+            rectangles.add(e.getRectangle());
+        }
+        return rectangles;
+    }
+
+    /**
+     * Returns the column of an x-coordinate. Coordinates outside the
+     * grid belong to the nearest column on its edge.
+     */
+    private int column(float x) {
+        return clamp((int)Math.floor((x-originX)/cellSize), columns);
+    }
+
+    /**
+     * Returns the row of a y-coordinate. Coordinates outside the grid
+     * belong to the nearest row on its edge.
+     */
+    private int row(float y) {
+        return clamp((int)Math.floor((y-originY)/cellSize), rows);
+    }
+
+    private static int clamp(int index, int length) {
+        if(index < 0) {
+            return 0;
+        }
+        if(index >= length) {
+            return length-1;
+        }
+        return index;
+    }
+}
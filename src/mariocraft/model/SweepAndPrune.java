@@ -0,0 +1,170 @@
+package mariocraft.model;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * Keeps the moving entities of a level sorted by the left edges of their
+ * rectangles, so that the entities near a rectangle can be found without
+ * looking at all of them. The entities are put in groups, and a query
+ * only finds the entities of the groups asked for.
+ * <p>
+ * The order is refit after the entities have moved. Since they move a
+ * little each update the order is nearly right, and an insertion sort
+ * puts it right in about linear time. Entities that have just been added
+ * are sorted from scratch instead.
+ *
+ * @author Sebastian Olsson
+ */
+public class SweepAndPrune {
+    private Entity[] entities;
+    private int[] groups;
+    private float[] left;      // Left edges of the rectangles, in the sorted order.
+    private int[] order;       // The entities, sorted by the left edges of their rectangles.
+    private int size;
+    private float widest;      // The width of the widest rectangle.
+    private boolean added;     // Entities have been added since the latest refit.
+
+    /**
+     * Creates an empty broad phase.
+     */
+    public SweepAndPrune() {
+        entities = new Entity[16];
+        groups = new int[16];
+        left = new float[16];
+        order = new int[16];
+    }
+
+    /**
+     * Adds an entity to one or more groups. It is not found by findNear()
+     * until refit() has been called, which should be done once all
+     * entities have been added.
+     *
+     * @param entity The entity
+     * @param group The bits of the groups of the entity
+     */
+    public void add(Entity entity, int group) {
+        if(size == entities.length) {
+            grow();
+        }
+        entities[size] = entity;
+        groups[size] = group;
+        order[size] = size;
+        size++;
+        added = true;
+    }
+
+    /**
+     * @return The number of entities
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sorts the entities again after they have moved.
+     */
+    public void refit() {
+        if(added) {
+            sortAll();
+            added = false;
+        }
+        widest = 0;
+        for(int i = 0;i < size;i++) {
+            Rectangle2D.Float r = entities[order[i]].getRectangle();
+            left[i] = r.x;
+            widest = Math.max(widest, r.width);
+        }
+        for(int i = 1;i < size;i++) {
+            float x = left[i];
+            int e = order[i];
+            int j = i-1;
+            while(j >= 0 && left[j] > x) {
+                left[j+1] = left[j];
+                order[j+1] = order[j];
+                j--;
+            }
+            left[j+1] = x;
+            order[j+1] = e;
+        }
+    }
+
+    /**
+     * Sorts the entities by the left edges of their rectangles, the
+     * entities with equal edges in the order they were added.
+     */
+    private void sortAll() {
+        long[] keys = new long[size];
+        for(int i = 0;i < size;i++) {
+            int bits = Float.floatToIntBits(entities[i].getRectangle().x);
+            bits ^= (bits >> 31) & 0x7fffffff;  // Negative floats now compare like ints too.
+            keys[i] = ((long)bits << 32) | i;
+        }
+        Arrays.sort(keys);
+        for(int i = 0;i < size;i++) {
+            order[i] = (int)keys[i];
+        }
+    }
+
+    /**
+     * Finds the entities of the given groups that intersect or touch a
+     * rectangle and adds them to the buffer.
+     *
+     * @param x The left edge of the rectangle
+     * @param y The top edge of the rectangle
+     * @param w The width of the rectangle
+     * @param h The height of the rectangle
+     * @param group The bits of the groups to look in
+     * @param out The buffer to add the entities to
+     */
+    public void findNear(float x, float y, float w, float h, int group, ColliderBuffer out) {
+        // Only entities whose left edges lie within the widest width to
+        // the left of the rectangle can reach it.
+        for(int i = firstLeftOf(x-widest);i < size && left[i] <= x+w;i++) {
+            int e = order[i];
+            if((groups[e] & group) != 0) {
+                Rectangle2D.Float r = entities[e].getRectangle();
+                if(r.x+r.width >= x && r.y <= y+h && r.y+r.height >= y) {
+                    out.add(entities[e]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the first place in the sorted order where the left edge is
+     * at least x.
+     */
+    private int firstLeftOf(float x) {
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int mid = (low+high) >>> 1;
+            if(left[mid] < x) {
+                low = mid+1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Doubles the room for entities.
+     */
+    private void grow() {
+        int n = entities.length*2;
+        Entity[] newEntities = new Entity[n];
+        System.arraycopy(entities, 0, newEntities, 0, size);
+        entities = newEntities;
+        int[] newGroups = new int[n];
+        System.arraycopy(groups, 0, newGroups, 0, size);
+        groups = newGroups;
+        float[] newLeft = new float[n];
+        System.arraycopy(left, 0, newLeft, 0, size);
+        left = newLeft;
+        int[] newOrder = new int[n];
+        System.arraycopy(order, 0, newOrder, 0, size);
+        order = newOrder;
+    }
+}
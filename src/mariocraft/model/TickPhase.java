@@ -0,0 +1,34 @@
+package mariocraft.model;
+
+/**
+ * The phases of an update of a level, in the order they are run.
+ * 
+ * @author Sebastian Olsson
+ */
+public enum TickPhase {
+    ACTIVITY("Activity"),
+    PRE_LOCATIONS("Pre-locations"),
+    GRAVITY("Gravity"),
+    KEY_STATE("Key state"),
+    CONDITIONS("Conditions"),
+    TIME_AIRBORNE("Time airborne"),
+    MOVING_PLATFORMS("Moving platforms"),
+    MOVEMENT("Movement"),
+    COLLISIONS("Collisions"),
+    GROUND("Ground"),
+    ANIMATIONS("Animations"),
+    TERMINATION("Termination");
+    
+    private final String title;
+    
+    private TickPhase(String title) {
+        this.title = title;
+    }
+    
+    /**
+     * @return A readable name of the phase
+     */
+    public String getTitle() {
+        return title;
+    }
+}
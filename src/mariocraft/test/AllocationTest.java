@@ -0,0 +1,82 @@
+package mariocraft.test;
+
+import java.io.IOException;
+
+import mariocraft.headless.HeadlessRunner;
+import mariocraft.metrics.AllocationProfiler;
+import mariocraft.metrics.RollingHistogram;
+import mariocraft.metrics.TickProfiler;
+import mariocraft.model.KeyState;
+import mariocraft.model.Level;
+import mariocraft.model.LevelGenerator;
+import mariocraft.model.TickPhase;
+import junit.framework.TestCase;
+
+/**
+ * A class made for catching allocations in the update of a level. Every
+ * level is updated until the JIT has compiled the update, then the bytes
+ * allocated by each phase are counted. A level fails if its updates
+ * allocate more bytes on average than the budget, which may be set with
+ * -Dmariocraft.allocationBudget=bytes.
+ * @author Sebastian Olsson
+ *
+ */
+public class AllocationTest extends TestCase {
+
+	private static final int WARMUP_TICKS = 20000;
+	private static final int MEASURED_TICKS = 5000;
+	// Allows for the odd buffer that grows after the warm-up.
+	private static final double DEFAULT_BUDGET = 1;
+
+	/**
+	 * Tests if the updates of every level stay within the budget.
+	 */
+	public void testUpdateAllocations() throws IOException {
+		double budget = Double.parseDouble(System.getProperty("mariocraft.allocationBudget", ""+DEFAULT_BUDGET));
+		StringBuilder failures = new StringBuilder();
+		for (String name : LevelGenerator.LEVELS) {
+			LevelGenerator lg = new LevelGenerator(new String[]{name}, 0);
+			lg.generateNext();
+			Level level = lg.getNextLevel();
+			KeyState keys = new KeyState();
+			level.setKeyState(keys);
+			run(level, keys, WARMUP_TICKS);
+
+			AllocationProfiler profiler = new AllocationProfiler(MEASURED_TICKS);
+			level.setProfiler(profiler);
+			run(level, keys, MEASURED_TICKS);
+			if (profiler.getTotal().getMean() > budget) {
+				failures.append(breakdown(name, profiler));
+			}
+		}
+		assertTrue("Updates allocate more than "+budget+" bytes per tick:\n"+failures, failures.length() == 0);
+	}
+
+	/**
+	 * Updates a level, walking right like the headless runner. The
+	 * protagonist is reset whenever the level is finished, beat or not.
+	 */
+	private void run(Level level, KeyState keys, int ticks) {
+		for (int tick = 0; tick < ticks; tick++) {
+			if (level.isFinished()) {
+				level.resetProtagonist();
+			}
+			HeadlessRunner.WALK_RIGHT.apply(tick, keys);
+			level.update();
+		}
+	}
+
+	/**
+	 * Returns the mean and maximum bytes allocated by each phase.
+	 */
+	private String breakdown(String name, TickProfiler profiler) {
+		StringBuilder sb = new StringBuilder(name+" (bytes per tick: mean max)\n");
+		for (TickPhase phase : TickPhase.values()) {
+			RollingHistogram h = profiler.getHistogram(phase);
+			sb.append("  "+phase.getTitle()+": "+h.getMean()+" "+h.getMax()+"\n");
+		}
+		RollingHistogram h = profiler.getTotal();
+		sb.append("  Total: "+h.getMean()+" "+h.getMax()+"\n");
+		return sb.toString();
+	}
+}
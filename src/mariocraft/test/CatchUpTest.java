@@ -0,0 +1,171 @@
+package mariocraft.test;
+
+import java.io.IOException;
+
+import mariocraft.headless.HeadlessRunner;
+import mariocraft.model.BallSystem;
+import mariocraft.model.KeyState;
+import mariocraft.model.Level;
+import mariocraft.model.LevelGenerator;
+import junit.framework.TestCase;
+
+/**
+ * A class made for testing that suspended balls make up for the updates
+ * they missed. Every level is run twice with the protagonist standing
+ * still: once on a screen big enough for every ball to be updated all the
+ * time, and once on a small screen, which suspends the balls far away
+ * until the screen is made big at the end. Waking them all at once is
+ * spread over a number of updates, which are run until every ball has
+ * caught up. The levels are also walked through, which wakes the balls
+ * as the protagonist reaches them.
+ * @author Sebastian Olsson
+ *
+ */
+public class CatchUpTest extends TestCase {
+
+	private static final int HUGE = 1000000;
+	private static final int TICKS = 2000;
+	private static final String CROWDED_LEVEL = "level6/";
+
+	/**
+	 * Tests if the balls end up where they would have been had they
+	 * never been suspended.
+	 */
+	public void testCatchUp() throws IOException {
+		for (String name : LevelGenerator.LEVELS) {
+			Level always = load(name);
+			always.setScreenSize(HUGE, HUGE);
+			Level suspended = load(name);
+			suspended.setScreenSize(0, 0);
+			for (int tick = 0; tick < TICKS; tick++) {
+				always.update();
+				suspended.update();
+			}
+			suspended.setScreenSize(HUGE, HUGE);
+			BallSystem expected = always.getBalls();
+			BallSystem actual = suspended.getBalls();
+			assertEquals(expected.size(), actual.size());
+			int ticks = 0;
+			do {
+				always.update();
+				suspended.update();
+				ticks++;
+				assertTrue(name + " should catch up", ticks < TICKS);
+			} while (!caughtUp(expected, actual));
+
+			for (int i = 0; i < expected.size(); i++) {
+				String ball = name + " ball " + i;
+				assertEquals(ball, expected.getX(i), actual.getX(i), 0);
+				assertEquals(ball, expected.getY(i), actual.getY(i), 0);
+				assertEquals(ball, expected.getVelocityX(i), actual.getVelocityX(i), 0);
+				assertEquals(ball, expected.getVelocityY(i), actual.getVelocityY(i), 0);
+				assertEquals(ball, expected.getFrame(i), actual.getFrame(i));
+			}
+		}
+	}
+
+	/**
+	 * Tests if the balls that the protagonist reaches by walking, and that
+	 * have caught up, are where they would have been had they never been
+	 * suspended. Nothing is lifted, so the tiles and blocks do not change.
+	 */
+	public void testWalkingIntoArea() throws IOException {
+		int compared = 0;
+		for (String name : LevelGenerator.LEVELS) {
+			Level always = load(name);
+			always.setScreenSize(HUGE, HUGE);
+			Level suspended = load(name);
+			suspended.setScreenSize(0, 0);
+			KeyState alwaysKeys = new KeyState();
+			always.setKeyState(alwaysKeys);
+			KeyState suspendedKeys = new KeyState();
+			suspended.setKeyState(suspendedKeys);
+			BallSystem expected = always.getBalls();
+			BallSystem actual = suspended.getBalls();
+			boolean[] woken = new boolean[actual.size()];
+			for (int tick = 0; tick < TICKS; tick++) {
+				HeadlessRunner.WALK_RIGHT.apply(tick, alwaysKeys);
+				HeadlessRunner.WALK_RIGHT.apply(tick, suspendedKeys);
+				always.update();
+				suspended.update();
+				for (int i = 0; i < actual.size(); i++) {
+					if (actual.getLastUpdate(i) != expected.getLastUpdate(i)) {
+						woken[i] = true;
+					}
+				}
+			}
+
+			for (int i = 0; i < actual.size(); i++) {
+				if (!woken[i] || actual.getLastUpdate(i) != expected.getLastUpdate(i)) {
+					continue;
+				}
+				String ball = name + " ball " + i;
+				assertEquals(ball, expected.getX(i), actual.getX(i), 0);
+				assertEquals(ball, expected.getY(i), actual.getY(i), 0);
+				assertEquals(ball, expected.getVelocityX(i), actual.getVelocityX(i), 0);
+				assertEquals(ball, expected.getVelocityY(i), actual.getVelocityY(i), 0);
+				compared++;
+			}
+		}
+		assertTrue("Some balls should be woken by walking", compared > 0);
+	}
+
+	/**
+	 * Tests if waking balls that missed many updates makes up for no more
+	 * of them in one update than CATCH_UP_BUDGET, and leaves the balls that
+	 * have not caught up suspended.
+	 */
+	public void testWakingCost() throws IOException {
+		Level level = load(CROWDED_LEVEL);
+		level.setScreenSize(0, 0);
+		for (int tick = 0; tick < TICKS; tick++) {
+			level.update();
+		}
+		BallSystem balls = level.getBalls();
+		long before = sumLastUpdates(balls);
+		level.setScreenSize(HUGE, HUGE);
+		level.update();
+		int latest = 0;
+		for (int i = 0; i < balls.size(); i++) {
+			latest = Math.max(latest, balls.getLastUpdate(i));
+		}
+		int behind = 0;
+		for (int i = 0; i < balls.size(); i++) {
+			if (balls.getLastUpdate(i) < latest) {
+				behind++;
+			}
+		}
+		// Each ball also takes one step for the update itself.
+		assertTrue(sumLastUpdates(balls) - before <= Level.CATCH_UP_BUDGET + balls.size());
+		assertTrue("Some balls should still be catching up", behind > 0);
+	}
+
+	/**
+	 * Returns true if every ball has been updated as often as in the level
+	 * where the balls are never suspended.
+	 */
+	private boolean caughtUp(BallSystem expected, BallSystem actual) {
+		for (int i = 0; i < expected.size(); i++) {
+			if (expected.getLastUpdate(i) != actual.getLastUpdate(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private long sumLastUpdates(BallSystem balls) {
+		long sum = 0;
+		for (int i = 0; i < balls.size(); i++) {
+			sum += balls.getLastUpdate(i);
+		}
+		return sum;
+	}
+
+	private Level load(String name) throws IOException {
+		LevelGenerator lg = new LevelGenerator(new String[]{name}, 0);
+		lg.generateNext();
+		Level level = lg.getNextLevel();
+		level.setKeyState(new KeyState());
+		return level;
+	}
+}
@@ -0,0 +1,130 @@
+package mariocraft.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import mariocraft.headless.HeadlessRunner;
+import mariocraft.headless.InputScript;
+import mariocraft.model.BallSystem;
+import mariocraft.model.InputRecording;
+import mariocraft.model.KeyState;
+import mariocraft.model.Level;
+import mariocraft.model.LevelGenerator;
+import junit.framework.TestCase;
+
+/**
+ * A class made for testing that a recorded level plays out the same when
+ * it is replayed. The keys of a headless run are recorded the way the
+ * game screen records them, written to a stream and read back, and the
+ * recording is then replayed on a freshly loaded level. The runs are made
+ * on a screen big enough to grow the area where balls are updated, so the
+ * replay only plays out the same if it uses the recorded screen size.
+ * @author Sebastian Olsson
+ *
+ */
+public class InputRecordingTest extends TestCase {
+
+	private static final long SEED = 0;
+	private static final int MAX_TICKS = 3000;
+	private static final int SCREEN_WIDTH = 2560;
+	private static final int SCREEN_HEIGHT = 1440;
+
+	/**
+	 * Tests a level that is beat after a couple of deaths.
+	 */
+	public void testReplayVictory() throws IOException {
+		HeadlessRunner.Result result = assertReplays("level1/");
+		assertTrue(result.victorious);
+		assertTrue(result.deaths > 0);
+	}
+
+	/**
+	 * Tests a level that is given up on, dying many times on the way.
+	 */
+	public void testReplayDefeat() throws IOException {
+		HeadlessRunner.Result result = assertReplays("level2/");
+		assertFalse(result.victorious);
+		assertEquals(MAX_TICKS, result.ticks);
+		assertTrue(result.deaths > 0);
+	}
+
+	/**
+	 * Tests a level with so many balls around that the screen size decides
+	 * which of them are updated.
+	 */
+	public void testReplayScreenSize() throws IOException {
+		HeadlessRunner.Result result = assertReplays("level6/");
+		assertEquals(MAX_TICKS, result.ticks);
+	}
+
+	/**
+	 * Tests if a recording holds the same keys after being written and read.
+	 */
+	public void testWriteRead() throws IOException {
+		InputRecording recording = new InputRecording("level3/", 42, SCREEN_WIDTH, SCREEN_HEIGHT);
+		for (int tick = 0; tick < 100; tick++) {
+			recording.record(tick % 7 < 3 ? KeyState.RIGHT | KeyState.JUMP : KeyState.LEFT);
+		}
+		InputRecording copy = roundTrip(recording);
+		assertEquals("level3/", copy.getLevelName());
+		assertEquals(42, copy.getSeed());
+		assertEquals(SCREEN_WIDTH, copy.getScreenWidth());
+		assertEquals(SCREEN_HEIGHT, copy.getScreenHeight());
+		assertEquals(recording.getTicks(), copy.getTicks());
+		assertEquals(recording.getRuns(), copy.getRuns());
+		for (int tick = -1; tick <= 100; tick++) {
+			assertEquals("tick " + tick, recording.getBits(tick), copy.getBits(tick));
+		}
+		assertEquals(0, copy.getBits(100));
+	}
+
+	/**
+	 * Runs a level walking right while recording the keys, replays the
+	 * recording and asserts that both runs end the same way.
+	 */
+	private HeadlessRunner.Result assertReplays(String name) throws IOException {
+		final InputRecording recording = new InputRecording(name, SEED, SCREEN_WIDTH, SCREEN_HEIGHT);
+		InputScript recorder = new InputScript() {
+			public void apply(int tick, KeyState keys) {
+				HeadlessRunner.WALK_RIGHT.apply(tick, keys);
+				recording.record(keys.getBits());
+			}
+		};
+		Level played = load(name);
+		HeadlessRunner player = new HeadlessRunner(recorder, MAX_TICKS);
+		player.setScreenSize(SCREEN_WIDTH, SCREEN_HEIGHT);
+		HeadlessRunner.Result expected = player.run(name, played);
+		assertEquals(expected.ticks, recording.getTicks());
+		assertTrue("Keys should be stored as runs", recording.getRuns() < recording.getTicks());
+
+		InputRecording copy = roundTrip(recording);
+		Level replayed = load(copy.getLevelName());
+		HeadlessRunner.Result actual = HeadlessRunner.replaying(copy).run(name, replayed);
+		assertEquals(name, expected.ticks, actual.ticks);
+		assertEquals(name, expected.deaths, actual.deaths);
+		assertEquals(name, Boolean.valueOf(expected.victorious), Boolean.valueOf(actual.victorious));
+
+		BallSystem expectedBalls = played.getBalls();
+		BallSystem actualBalls = replayed.getBalls();
+		for (int i = 0; i < expectedBalls.size(); i++) {
+			String ball = name + " ball " + i;
+			assertEquals(ball, expectedBalls.getX(i), actualBalls.getX(i), 0);
+			assertEquals(ball, expectedBalls.getY(i), actualBalls.getY(i), 0);
+			assertEquals(ball, expectedBalls.getLastUpdate(i), actualBalls.getLastUpdate(i));
+		}
+		return actual;
+	}
+
+	private InputRecording roundTrip(InputRecording recording) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		recording.write(out);
+		return InputRecording.read(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	private Level load(String name) throws IOException {
+		LevelGenerator lg = new LevelGenerator(new String[]{name}, SEED);
+		lg.generateNext();
+		return lg.getNextLevel();
+	}
+}
@@ -0,0 +1,118 @@
+package mariocraft.test;
+
+import java.awt.geom.Rectangle2D;
+
+import mariocraft.geom.Vector2D;
+import mariocraft.model.MovingPattern;
+import junit.framework.TestCase;
+
+/**
+ * A class made for testing purposes of the MovingPattern class. The
+ * pattern is compared with one that is stepped through update by update.
+ * @author Sebastian Olsson
+ *
+ */
+public class MovingPatternTest extends TestCase {
+
+	private static final float MAX_ERROR = 0.001f;
+
+	Vector2D[] velocities = new Vector2D[] {new Vector2D(4, 0), new Vector2D(-2, 0.5f), new Vector2D(0, -1)};
+	int[] periods = new int[] {50, 100, 25};
+	MovingPattern pattern = new MovingPattern(velocities, periods);
+
+	/**
+	 * Tests if getVelocity() gives the velocity of every update in
+	 * the order of the pattern. The first velocity lasts one update
+	 * less the first time around.
+	 */
+	public void testGetVelocity() {
+		int current = 0;
+		int counter = 0;
+		for (int tick = 1; tick <= 1000; tick++) {
+			counter++;
+			if (counter == periods[current]) {
+				current = (current + 1) % periods.length;
+				counter = 0;
+			}
+			assertSame(velocities[current], pattern.getVelocity(tick));
+		}
+	}
+
+	/**
+	 * Tests if getDisplacementX() and getDisplacementY() give the sum of
+	 * the velocities of all updates so far, also far into the pattern.
+	 */
+	public void testGetDisplacement() {
+		float x = 0;
+		float y = 0;
+		assertEquals(0f, pattern.getDisplacementX(0));
+		assertEquals(0f, pattern.getDisplacementY(0));
+		for (int tick = 1; tick <= 1000; tick++) {
+			x += pattern.getVelocity(tick).x;
+			y += pattern.getVelocity(tick).y;
+			assertTrue(almostEqual(x, pattern.getDisplacementX(tick)));
+			assertTrue(almostEqual(y, pattern.getDisplacementY(tick)));
+		}
+		// Every whole cycle moves 0 in x and 25 in y.
+		int cycle = 50 + 100 + 25;
+		for (int tick = 1; tick <= cycle; tick++) {
+			assertTrue(almostEqual(pattern.getDisplacementX(tick), pattern.getDisplacementX(tick + 10 * cycle)));
+			assertTrue(almostEqual(pattern.getDisplacementY(tick) + 250, pattern.getDisplacementY(tick + 10 * cycle)));
+		}
+	}
+
+	/**
+	 * Tests if getBounds() gives the range of the displacement during a
+	 * cycle. The first velocity lasts one update less the first time
+	 * around, so the pattern only gets 196 to the right and then 4 past
+	 * its origin to the left.
+	 */
+	public void testGetBounds() {
+		Rectangle2D.Float bounds = pattern.getBounds();
+		assertTrue(almostEqual(-4, bounds.x));
+		assertTrue(almostEqual(0, bounds.y));
+		assertTrue(almostEqual(200, bounds.width));
+		assertTrue(almostEqual(50, bounds.height));
+		
+		Vector2D[] mirrored = new Vector2D[] {new Vector2D(-4, 0), new Vector2D(2, 0.5f), new Vector2D(0, -1)};
+		bounds = new MovingPattern(mirrored, periods).getBounds();
+		assertTrue(almostEqual(-196, bounds.x));
+		assertTrue(almostEqual(200, bounds.width));
+	}
+
+	/**
+	 * Tests if getBounds() is the smallest rectangle containing every
+	 * displacement of a cycle, for a pattern whose first velocity
+	 * moves along both axes.
+	 */
+	public void testGetBoundsOfEveryDisplacement() {
+		Vector2D[] diagonal = new Vector2D[] {new Vector2D(-3, 2), new Vector2D(1, -1), new Vector2D(0.5f, 0)};
+		MovingPattern p = new MovingPattern(diagonal, periods);
+		float minX = 0, minY = 0, maxX = 0, maxY = 0;
+		for (int tick = 0; tick < 50 + 100 + 25; tick++) {
+			minX = Math.min(minX, p.getDisplacementX(tick));
+			minY = Math.min(minY, p.getDisplacementY(tick));
+			maxX = Math.max(maxX, p.getDisplacementX(tick));
+			maxY = Math.max(maxY, p.getDisplacementY(tick));
+		}
+		Rectangle2D.Float bounds = p.getBounds();
+		assertTrue(almostEqual(minX, bounds.x));
+		assertTrue(almostEqual(minY, bounds.y));
+		assertTrue(almostEqual(maxX - minX, bounds.width));
+		assertTrue(almostEqual(maxY - minY, bounds.height));
+	}
+
+	/**
+	 * Tests that a period must be positive.
+	 */
+	public void testNonPositivePeriod() {
+		try {
+			new MovingPattern(velocities, new int[] {50, 0, 25});
+			fail();
+		} catch (IllegalArgumentException e) {}
+	}
+
+	private boolean almostEqual(float a, float b) {
+		return Math.abs(a - b) < MAX_ERROR;
+	}
+}
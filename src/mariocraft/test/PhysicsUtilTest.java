@@ -0,0 +1,224 @@
+package mariocraft.test;
+
+import java.util.Random;
+
+import mariocraft.geom.Vector2D;
+import mariocraft.model.BallSystem;
+import mariocraft.model.ColliderBuffer;
+import mariocraft.model.Contact;
+import mariocraft.model.Protagonist;
+import mariocraft.util.PhysicsUtil;
+import junit.framework.TestCase;
+
+/**
+ * A class made for testing the swept collisions of PhysicsUtil. The time
+ * of impact is found by entry and exit times along each axis, which are
+ * tested through the movements that use them. Every test starts with a
+ * 10x10 protagonist whose top left corner is at the origin.
+ * @author Sebastian Olsson
+ *
+ */
+public class PhysicsUtilTest extends TestCase {
+
+	private static final float DELTA = 1e-4f;
+
+	private Protagonist prot;
+	private ColliderBuffer colliders;
+
+	protected void setUp() {
+		prot = new Protagonist(5, 5, 10, 10, 1, 1, 1, 20);
+		colliders = new ColliderBuffer();
+	}
+
+	/**
+	 * Tests if a protagonist moving much further than the thickness of a
+	 * wall in one update stops against it instead of passing through.
+	 */
+	public void testNoTunnellingThroughWall() {
+		colliders.add(100, -50, 2, 100);
+		prot.setVelocity(1000, 0);
+		PhysicsUtil.moveProtagonist(prot, colliders);
+		assertEquals(90, prot.getRectangle().x, 0);
+		assertEquals(0, prot.getRectangle().y, 0);
+		assertEquals(0, prot.getVelocityX(), 0);
+	}
+
+	/**
+	 * Tests if a protagonist falling fast lands on a thin platform.
+	 */
+	public void testNoTunnellingThroughPlatform() {
+		colliders.add(-50, 500, 100, 1);
+		prot.setVelocity(0, 1000);
+		PhysicsUtil.moveProtagonist(prot, colliders);
+		assertEquals(490, prot.getRectangle().y, 0);
+		assertEquals(0, prot.getVelocityY(), 0);
+		assertTrue(prot.getGroundContact().isTouching());
+	}
+
+	/**
+	 * Tests if a fast ball bounces off a thin wall instead of passing through.
+	 */
+	public void testNoTunnellingBall() {
+		BallSystem balls = new BallSystem();
+		int b = balls.add(5, 5, 10, 10, new Vector2D(1000, 0), new Random(0));
+		colliders.add(100, -50, 2, 100);
+		PhysicsUtil.moveBall(balls, b, colliders);
+		assertTrue(balls.getX(b) < 90);
+		assertTrue(balls.getVelocityX(b) < 0);
+	}
+
+	/**
+	 * Tests if the colliders hit are found among many that are not, past
+	 * the first 64 colliders that one word of the hit mask holds.
+	 */
+	public void testHitAmongManyColliders() {
+		for (int i = 0; i < 150; i++) {
+			colliders.add(-1000, 100 + 30 * i, 20, 20);
+		}
+		colliders.add(100, -50, 2, 100);
+		colliders.add(60, -50, 2, 100);
+		for (int i = 0; i < 50; i++) {
+			colliders.add(1000, 100 + 30 * i, 20, 20);
+		}
+		prot.setVelocity(1000, 0);
+		PhysicsUtil.moveProtagonist(prot, colliders);
+		assertEquals(50, prot.getRectangle().x, 0);
+		assertEquals(0, prot.getVelocityX(), 0);
+	}
+
+	/**
+	 * Tests if a protagonist moving diagonally into a wall keeps moving
+	 * along it with what is left of the movement.
+	 */
+	public void testSlideAlongWall() {
+		colliders.add(15, -50, 20, 100);
+		prot.setVelocity(10, 10);
+		PhysicsUtil.moveProtagonist(prot, colliders);
+		assertEquals(5, prot.getRectangle().x, 0);
+		assertEquals(10, prot.getRectangle().y, DELTA);
+		assertEquals(0, prot.getVelocityX(), 0);
+		assertEquals(10, prot.getVelocityY(), 0);
+	}
+
+	/**
+	 * Tests if a protagonist walking on a floor of tiles, pulled down a
+	 * little by gravity, slides across the seams between the tiles.
+	 */
+	public void testSlideAlongFloor() {
+		colliders.add(-20, 10, 20, 20);
+		colliders.add(0, 10, 20, 20);
+		colliders.add(20, 10, 20, 20);
+		prot.setVelocity(15, 1);
+		PhysicsUtil.moveProtagonist(prot, colliders);
+		assertEquals(15, prot.getRectangle().x, DELTA);
+		assertEquals(0, prot.getRectangle().y, 0);
+		assertEquals(15, prot.getVelocityX(), 0);
+		assertEquals(0, prot.getVelocityY(), 0);
+		assertTrue(prot.getGroundContact().isTouching());
+	}
+
+	/**
+	 * Tests if a protagonist reaching a corner on both axes at once lands
+	 * on the top and slides onto it.
+	 */
+	public void testCornerHitExactly() {
+		colliders.add(20, 20, 20, 20);
+		prot.setVelocity(20, 20);
+		PhysicsUtil.moveProtagonist(prot, colliders);
+		assertEquals(20, prot.getRectangle().x, DELTA);
+		assertEquals(10, prot.getRectangle().y, 0);
+		assertEquals(20, prot.getVelocityX(), 0);
+		assertEquals(0, prot.getVelocityY(), 0);
+		assertTrue(prot.getGroundContact().isTouching());
+	}
+
+	/**
+	 * Tests if a protagonist clipping a corner hits the side that it
+	 * reaches last, since that is when the two overlap.
+	 */
+	public void testCornerHitTop() {
+		colliders.add(15, 18, 20, 20);
+		prot.setVelocity(20, 20);
+		PhysicsUtil.moveProtagonist(prot, colliders);
+		assertEquals(20, prot.getRectangle().x, DELTA);
+		assertEquals(8, prot.getRectangle().y, 0);
+		assertEquals(0, prot.getVelocityY(), 0);
+	}
+
+	/**
+	 * Tests the other way around, with the side of the block reached last.
+	 */
+	public void testCornerHitSide() {
+		colliders.add(15, 12, 20, 20);
+		prot.setVelocity(20, 20);
+		PhysicsUtil.moveProtagonist(prot, colliders);
+		assertEquals(5, prot.getRectangle().x, 0);
+		assertEquals(20, prot.getRectangle().y, DELTA);
+		assertEquals(0, prot.getVelocityX(), 0);
+		assertEquals(20, prot.getVelocityY(), 0);
+	}
+
+	/**
+	 * Tests if a protagonist passing under a corner is not stopped, though
+	 * the box around its whole movement overlaps the block.
+	 */
+	public void testCornerMiss() {
+		colliders.add(20, 0, 10, 5);
+		prot.setVelocity(20, 20);
+		PhysicsUtil.moveProtagonist(prot, colliders);
+		assertEquals(20, prot.getRectangle().x, DELTA);
+		assertEquals(20, prot.getRectangle().y, DELTA);
+		assertEquals(20, prot.getVelocityX(), 0);
+		assertEquals(20, prot.getVelocityY(), 0);
+	}
+
+	/**
+	 * Tests if a protagonist hovering within CONTACT_SLOP of a top stands
+	 * on it and is put exactly on it.
+	 */
+	public void testGroundWithinSlop() {
+		prot.setLocation(0, -0.005f);
+		colliders.add(-10, 10, 30, 20);
+		PhysicsUtil.moveProtagonist(prot, colliders);
+		Contact ground = prot.getGroundContact();
+		assertTrue(ground.isTouching());
+		assertEquals(0, prot.getRectangle().y, 0);
+		assertEquals(-0.005f, ground.getPenetration(), DELTA);
+		assertEquals(-1, ground.getNormalY(), 0);
+	}
+
+	/**
+	 * Tests if a protagonist further above a top than CONTACT_SLOP does
+	 * not stand on it.
+	 */
+	public void testGroundBeyondSlop() {
+		prot.setLocation(0, -0.02f);
+		colliders.add(-10, 10, 30, 20);
+		PhysicsUtil.moveProtagonist(prot, colliders);
+		assertFalse(prot.getGroundContact().isTouching());
+		assertEquals(-0.02f, prot.getRectangle().y, 0);
+	}
+
+	/**
+	 * Tests if a protagonist moving upwards stands on nothing, even right
+	 * on a top.
+	 */
+	public void testNoGroundWhenRising() {
+		colliders.add(-10, 10, 30, 20);
+		prot.setVelocity(0, -5);
+		PhysicsUtil.moveProtagonist(prot, colliders);
+		assertFalse(prot.getGroundContact().isTouching());
+		assertEquals(-5, prot.getRectangle().y, 0);
+	}
+
+	/**
+	 * Tests if the protagonist stands on the collider under most of it.
+	 */
+	public void testGroundUnderMost() {
+		prot.setLocation(5, 0);
+		colliders.add(-10, 10, 17, 20);
+		colliders.add(7, 10, 20, 20);
+		PhysicsUtil.moveProtagonist(prot, colliders);
+		assertEquals(7, prot.getGroundContact().getRectangle().x, 0);
+	}
+}
@@ -0,0 +1,170 @@
+package mariocraft.ui;
+
+import mariocraft.metrics.Counter;
+import mariocraft.metrics.MetricsRegistry;
+import mariocraft.metrics.RollingHistogram;
+
+/**
+ * Decides how hard the update loop may try to catch up when it has
+ * fallen behind. The number of updates run back to back before the
+ * next frame gets a chance is chosen from how long updates and frames
+ * have recently taken. Time that cannot be caught up with, either
+ * because there is too much of it or because it keeps growing, is
+ * given up on instead of being replayed.
+ * 
+ * @author Erik
+ *
+ */
+public class CatchUpGovernor {
+	
+	public static final String BUDGET = "catchup.budget";			// Updates allowed per batch
+	public static final String DEBT = "catchup.debt";				// ns behind schedule after a batch
+	public static final String SPIRALS = "catchup.spirals";			// Times the debt was given up on
+	public static final String DROPPED_TICKS = "catchup.droppedTicks";	// Updates given up on
+	
+	/**
+	 * The system property giving the most time, in milliseconds, that
+	 * the game may fall behind before it is given up on.
+	 */
+	public static final String MAX_DEBT_PROPERTY = "mariocraft.maxDebtMs";
+	
+	private static final long DEFAULT_MAX_DEBT = 250000000L;	// in nanoseconds
+	private static final int MAX_BUDGET = 10;			// Never run more updates than this in a row
+	private static final int GROWING_BATCHES = 3;		// Full batches in a row with a growing debt that make a spiral
+	private static final int SMOOTHING = 3;				// Each new cost counts 1/2^SMOOTHING in the averages
+	
+	private long tickPeriod;
+	private long framePeriod;
+	private long maxDebt;
+	private boolean sharedCore;		// Whether rendering takes time from the updates
+	
+	private long tickCost;				// Average ns spent in one update
+	private volatile long frameCost;	// Average ns spent in one frame, written by the render thread
+	private long lastDebt;
+	private int growingBatches;
+	
+	private RollingHistogram budgets;
+	private RollingHistogram debts;
+	private Counter spirals;
+	private Counter droppedTicks;
+	
+	/**
+	 * Create a governor for updates and frames of the specified periods.
+	 * @param tickPeriod ns between two updates
+	 * @param framePeriod ns between two frames
+	 * @param maxDebt the most ns that the updates may fall behind
+	 * @param metrics where to report the catch-up
+	 */
+	public CatchUpGovernor(long tickPeriod, long framePeriod, long maxDebt, MetricsRegistry metrics) {
+		this.tickPeriod = tickPeriod;
+		this.framePeriod = framePeriod;
+		this.maxDebt = maxDebt;
+		sharedCore = Runtime.getRuntime().availableProcessors() < 2;
+		budgets = metrics.histogram(BUDGET);
+		debts = metrics.histogram(DEBT);
+		spirals = metrics.counter(SPIRALS);
+		droppedTicks = metrics.counter(DROPPED_TICKS);
+	}
+	
+	/**
+	 * Create a governor whose maximum debt is given by the system property
+	 * MAX_DEBT_PROPERTY, or 250 ms if it is not set.
+	 */
+	public static CatchUpGovernor fromSystemProperty(long tickPeriod, long framePeriod, MetricsRegistry metrics) {
+		long maxDebt = DEFAULT_MAX_DEBT;
+		String ms = System.getProperty(MAX_DEBT_PROPERTY);
+		if (ms != null) {
+			try {
+				maxDebt = Long.parseLong(ms)*1000000;
+			} catch (NumberFormatException e) {
+				System.err.println("Invalid " + MAX_DEBT_PROPERTY + " " + ms + ", using " + DEFAULT_MAX_DEBT/1000000);
+			}
+		}
+		return new CatchUpGovernor(tickPeriod, framePeriod, maxDebt, metrics);
+	}
+	
+	/**
+	 * Tell the governor that an update took the specified time.
+	 * Called by the update thread.
+	 */
+	public void tickDone(long nanos) {
+		tickCost += (nanos - tickCost) >> SMOOTHING;
+	}
+	
+	/**
+	 * Tell the governor that a frame took the specified time.
+	 * Called by the render thread.
+	 */
+	public void frameDone(long nanos) {
+		long cost = frameCost;
+		frameCost = cost + ((nanos - cost) >> SMOOTHING);
+	}
+	
+	/**
+	 * Returns how many updates may be run back to back before the next
+	 * frame. As many as fit in one frame period are allowed, less the
+	 * time that rendering needs if it shares the processor.
+	 * @return the number of updates, at least 1
+	 */
+	public int getBudget() {
+		long available = framePeriod;
+		if (sharedCore) {
+			available -= frameCost;
+		}
+		int budget = MAX_BUDGET;
+		if (tickCost > 0) {
+			budget = (int)Math.max(1, Math.min(MAX_BUDGET, available/tickCost));
+		}
+		budgets.record(budget);
+		return budget;
+	}
+	
+	/**
+	 * Decide what to do about being behind schedule after a batch of
+	 * updates. If the debt is larger than the maximum, or has grown
+	 * over several batches that used their whole budget, the updates
+	 * are in a spiral they cannot get out of, and the debt is given up on.
+	 * @param debt ns behind schedule, or less than 0 if ahead
+	 * @param usedBudget whether the batch ran as many updates as it was allowed
+	 * @return the ns to give up on, a multiple of the tick period
+	 */
+	public long settle(long debt, boolean usedBudget) {
+		if (debt <= 0) {
+			lastDebt = 0;
+			growingBatches = 0;
+			return 0;
+		}
+		debts.record(debt);
+		
+		if (usedBudget && debt > lastDebt) {
+			growingBatches++;
+		} else {
+			growingBatches = 0;
+		}
+		lastDebt = debt;
+		
+		if (debt > maxDebt || growingBatches >= GROWING_BATCHES) {
+			long ticks = debt/tickPeriod;
+			spirals.increment();
+			droppedTicks.add(ticks);
+			lastDebt = debt - ticks*tickPeriod;
+			growingBatches = 0;
+			return ticks*tickPeriod;
+		}
+		return 0;
+	}
+	
+	/**
+	 * @return the average ns spent in one update
+	 */
+	public long getTickCost() {
+		return tickCost;
+	}
+	
+	/**
+	 * @return the average ns spent in one frame
+	 */
+	public long getFrameCost() {
+		return frameCost;
+	}
+}
@@ -1,5 +1,10 @@
 package mariocraft.ui;
 
+import mariocraft.metrics.Counter;
+import mariocraft.metrics.MetricsRegistry;
+import mariocraft.metrics.RollingHistogram;
+import mariocraft.metrics.WindowedRate;
+
 /**
  * The core class, containing the game loop.
  * 
@@ -9,22 +14,32 @@ package mariocraft.ui;
  */
 public class Core {
 	
+	public static final String FRAME_TIME = "frame.time";		// ns between the starts of two frames
+	public static final String TICK_TIME = "tick.time";			// ns spent in one update
+	public static final String FRAME_SKIPS = "frame.skips";		// Updates run back to back to catch up
+	public static final String FRAME_JITTER = "frame.jitter";	// ns between the start of a frame and its deadline
+	public static final String MISSED_DEADLINES = "frame.missedDeadlines";	// Frames that took longer than the frame period
+	public static final String FRAMES = "frames";				// Frames per second
+	public static final String TICKS = "ticks";					// Updates per second
+	
 	ScreenController sc;
 	
-	public static double averageFPS;
-	public static double averageUPS;
-	private static double[] storeFPS;
-	private static double[] storeUPS;
-	private static final int NUM_FPS = 10;
-	private static final int NUM_UPS = 10;
-	private static long gameStart;
-	private static int frameCount;
-	private static int frameSkips;
-	private static int skips;
+	private MetricsRegistry metrics;
+	private RollingHistogram frameTime;
+	private RollingHistogram tickTime;
+	private RollingHistogram frameJitter;
+	private Counter frameSkips;
+	private Counter missedDeadlines;
+	private WindowedRate frames;			// Written by the render thread
+	private WindowedRate ticksPerSecond;	// Written by the update thread
 	
-	private static final int REQUESTED_FPS = 60;	// The FPS that we want
-	private static final int FRAME_PERIOD = 1000000000/REQUESTED_FPS; // in nanoseconds
-	private static final int MAX_NUMBER_OF_SKIPS = 5;
+	private static final int TICKS_PER_SECOND = 60;	// The fixed rate at which the game is updated
+	public static final long TICK_PERIOD = 1000000000L/TICKS_PER_SECOND; // in nanoseconds
+	private static final int DEFAULT_FPS = 60;	// The FPS that we want if the refresh rate is unknown
+	
+	private long framePeriod; // in nanoseconds
+	private FramePacer pacer;
+	private CatchUpGovernor governor;
 	
 	/**
 	 * Create an instance of class Core.
@@ -34,107 +49,136 @@ public class Core {
 	}
 	
 	/* 
-	 * Sets up the ScreenController without making it full screen yet.
+	 * Sets up the metrics and the ScreenController without making it full screen yet.
 	*/
 	private void setup() {
-		sc = new ScreenController();
-		storeFPS = new double[NUM_FPS];
-		storeUPS = new double[NUM_UPS];
+		metrics = new MetricsRegistry();
+		frameTime = metrics.histogram(FRAME_TIME);
+		tickTime = metrics.histogram(TICK_TIME);
+		frameJitter = metrics.histogram(FRAME_JITTER);
+		frameSkips = metrics.counter(FRAME_SKIPS);
+		missedDeadlines = metrics.counter(MISSED_DEADLINES);
+		frames = metrics.rate(FRAMES);
+		ticksPerSecond = metrics.rate(TICKS);
+		pacer = FramePacer.fromSystemProperty();
+		sc = new ScreenController(metrics);
 	}
 	
 	/**
-	 * Start the game. Makes the ScreenController set full screen and
-	 * initiates the game loop.
+	 * Start the game. Makes the ScreenController set full screen,
+	 * starts the render thread and runs the update loop.
 	 */
 	public void start() {
 		sc.start();
+		int refreshRate = sc.getRefreshRate();
+		if (refreshRate <= 0) {
+			refreshRate = DEFAULT_FPS;
+		}
+		framePeriod = 1000000000L/refreshRate;
+		governor = CatchUpGovernor.fromSystemProperty(TICK_PERIOD, framePeriod, metrics);
+		
+		Thread renderer = new Thread(new Runnable() {
+			public void run() {
+				renderLoop();
+			}
+		}, "Render");
+		renderer.start();
 		gameLoop();
+		sc.saveRecording();
+		try {
+			renderer.join();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		metrics.export(System.out);
 	}
 	
 	/* 
-	 * Run the game loop. The loop sleeps for a while between each
-	 * update according to SLEEP_TIME.
+	 * Run the game loop. The game is updated in fixed steps of TICK_PERIOD,
+	 * each on its own deadline. If the updates have fallen behind, they are
+	 * run back to back to catch up, in batches no larger than the governor
+	 * allows, with a frame period between the batches so that the game is
+	 * still seen moving. Time that the governor gives up on is skipped.
+	 * Painting is done by the render thread, so a slow frame does not
+	 * delay the next update.
 	 */
 	private void gameLoop() {
 		
-		long beforeTime, afterTime, timeSpent, sleepTime, overTime;
-		overTime = 0;
-		long totalOverTime = 0;
+		long deadline, batchStart, tickStart, tickEnd, debt;
+		int ticks, budget;
 		
-		gameStart = System.nanoTime();
-		beforeTime = gameStart;
+		deadline = System.nanoTime();
 		
 		while (sc.isRunning()) {
-			sc.update();
-			sc.paint();
-			afterTime = System.nanoTime();
-			timeSpent = afterTime - beforeTime;
-			sleepTime = FRAME_PERIOD - timeSpent - overTime;
-			if (sleepTime < 0) { // Updating took longer than the frame period
-				totalOverTime -= sleepTime;
-				overTime = 0;
-			} else {
-				try {
-					Thread.sleep(sleepTime/1000000); // ns --> ms
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-				overTime = System.nanoTime() - afterTime - sleepTime;
+			batchStart = System.nanoTime();
+			budget = governor.getBudget();
+			ticks = 0;
+			while (System.nanoTime() >= deadline && ticks < budget) {
+				tickStart = System.nanoTime();
+				sc.update();
+				tickEnd = System.nanoTime();
+				tickTime.record(tickEnd - tickStart);
+				governor.tickDone(tickEnd - tickStart);
+				deadline += TICK_PERIOD;
+				ticks++;
 			}
+			debt = System.nanoTime() - deadline;
+			deadline += governor.settle(debt, ticks == budget);
 			
-			beforeTime = System.nanoTime();
+			updateStats(ticks);
 			
-			// Update the game without rendering if speed-up is required to fulfill fps-request
-			skips = 0;
-			while (totalOverTime > FRAME_PERIOD && skips < MAX_NUMBER_OF_SKIPS) {
-				sc.update();
-				totalOverTime -= FRAME_PERIOD;
-				skips++;
+			if (System.nanoTime() >= deadline) {
+				// Still behind, so let a frame be painted before the next batch
+				pacer.waitUntil(batchStart + framePeriod);
+			} else {
+				pacer.waitUntil(deadline);
 			}
-			
-			updateStats();
 		}
-		System.out.println("Average FPS: "+averageFPS);
 	}
 	
 	/*
-	 * Update the UPS and FPS stats
+	 * Run the render loop. Frames are painted at the rate of the display,
+	 * each one interpolated between the two latest updates by the screen.
+	 * Frames are started on deadlines spaced framePeriod apart, so that an
+	 * early or late wakeup does not shift every frame after it.
 	 */
-	private void updateStats() {
-		long elapsedTime = System.nanoTime() - gameStart;
-		frameSkips += skips;
-		frameCount++;
-		
-		double actualFPS = (double)frameCount/elapsedTime*1000000000;
-		double actualUPS = (double)(frameCount + frameSkips)/elapsedTime*1000000000;
+	private void renderLoop() {
 		
-		storeFPS[ frameCount % NUM_FPS] = actualFPS;
-		storeUPS[ frameCount % NUM_UPS] = actualUPS;
+		long frameStart, lastTime, deadline;
 		
-		// Count total
+		lastTime = System.nanoTime();
+		deadline = lastTime;
 		
-		double totalFPS = 0;
-		for (int i = 0; i < NUM_FPS; i++) {
-			totalFPS += storeFPS[i];
-		}
-
-		double totalUPS = 0;
-		for (int i = 0; i < NUM_UPS; i++) {
-			totalUPS += storeUPS[i];
+		while (sc.isRunning()) {
+			frameStart = System.nanoTime();
+			frameJitter.record(Math.abs(frameStart - deadline));
+			frameTime.record(frameStart - lastTime);
+			frames.mark(frameStart);
+			lastTime = frameStart;
+			
+			sc.paint();
+			governor.frameDone(System.nanoTime() - frameStart);
+			
+			deadline += framePeriod;
+			if (System.nanoTime() > deadline) {
+				// Too late for this deadline, so aim for the next frame period from now
+				missedDeadlines.increment();
+				deadline = System.nanoTime() + framePeriod;
+			}
+			pacer.waitUntil(deadline);
 		}
-		
-		// Update average
-		
-		if (frameCount < NUM_FPS) {
-			averageFPS = totalFPS / frameCount;
-		} else {
-			averageFPS = totalFPS / NUM_FPS;
+	}
+	
+	/*
+	 * Update the stats with the specified number of updates, run back
+	 * to back
+	 */
+	private void updateStats(int ticks) {
+		if (ticks > 0) {
+			ticksPerSecond.mark(System.nanoTime(), ticks);
 		}
-		
-		if (frameCount < NUM_UPS) {
-			averageUPS = totalUPS / frameCount;
-		} else {
-			averageUPS = totalUPS / NUM_UPS;
+		if (ticks > 1) {
+			frameSkips.add(ticks - 1);
 		}
 	}
 }
@@ -0,0 +1,109 @@
+package mariocraft.ui;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Waits for the deadline of the next frame. The waiting can be done
+ * either by sleeping, which leaves the CPU alone but may wake up a
+ * millisecond or two late, or by parking until shortly before the
+ * deadline and yielding the rest of the way, which lands closely on
+ * the deadline at the cost of some CPU time.
+ * 
+ * @author Erik
+ *
+ */
+public class FramePacer {
+	
+	/**
+	 * The ways in which a FramePacer can wait.
+	 */
+	public enum Mode {
+		/** Sleep for the whole remaining time. Low CPU usage. */
+		SLEEP,
+		/** Park for most of the time, then spin-yield until the deadline. Precise. */
+		HYBRID;
+	}
+	
+	/**
+	 * The system property used to choose the mode, "sleep" or "hybrid".
+	 */
+	public static final String MODE_PROPERTY = "mariocraft.pacing";
+	
+	private static final long SPIN_THRESHOLD = 2000000L;	// ns before the deadline at which parking stops
+	
+	private Mode mode;
+	
+	/**
+	 * Create a new FramePacer waiting in the specified way.
+	 * @param mode how to wait
+	 */
+	public FramePacer(Mode mode) {
+		this.mode = mode;
+	}
+	
+	/**
+	 * Create a FramePacer with the mode named by the system property
+	 * MODE_PROPERTY, or HYBRID if it is not set.
+	 * @return the new FramePacer
+	 */
+	public static FramePacer fromSystemProperty() {
+		String name = System.getProperty(MODE_PROPERTY, Mode.HYBRID.name());
+		try {
+			return new FramePacer(Mode.valueOf(name.toUpperCase()));
+		} catch (IllegalArgumentException e) {
+			System.err.println("Unknown pacing mode " + name + ", using " + Mode.HYBRID);
+			return new FramePacer(Mode.HYBRID);
+		}
+	}
+	
+	/**
+	 * Wait until System.nanoTime() has reached the deadline. Returns at
+	 * once if it already has.
+	 * @param deadline the time to wait for, in nanoseconds
+	 */
+	public void waitUntil(long deadline) {
+		switch (mode) {
+		case SLEEP:
+			sleepUntil(deadline);
+			break;
+		case HYBRID:
+			parkUntil(deadline - SPIN_THRESHOLD);
+			while (System.nanoTime() < deadline) {
+				Thread.yield();
+			}
+			break;
+		}
+	}
+	
+	/*
+	 * Sleep until the deadline, with Thread.sleep rounding as it pleases.
+	 */
+	private void sleepUntil(long deadline) {
+		long remaining = deadline - System.nanoTime();
+		if (remaining > 0) {
+			try {
+				Thread.sleep(remaining/1000000, (int)(remaining%1000000));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/*
+	 * Park until the specified time. parkNanos may return early, so park
+	 * again for whatever is left.
+	 */
+	private void parkUntil(long time) {
+		long remaining;
+		while ((remaining = time - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+			LockSupport.parkNanos(remaining);
+		}
+	}
+	
+	/**
+	 * @return the way this FramePacer waits
+	 */
+	public Mode getMode() {
+		return mode;
+	}
+}
@@ -3,9 +3,12 @@ package mariocraft.ui;
 import java.awt.*;
 import javax.swing.*;
 import java.util.HashMap;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 
+import mariocraft.metrics.MetricsRegistry;
+import mariocraft.metrics.RollingHistogram;
+import mariocraft.metrics.WindowedRate;
+import mariocraft.model.LevelGenerator;
+import mariocraft.model.TickPhase;
 import mariocraft.ui.screens.*;
 
 /**
@@ -25,9 +28,14 @@ public class ScreenController extends JFrame {
 	
 	private ScreenManager s;
 	private GameScreen game;
-	private boolean running;
-	private VisibleScreen currentScreen;
+	private volatile boolean running;
+	private volatile VisibleScreen currentScreen;
 	private HashMap<String, VisibleScreen> screens;
+	private WindowedRate frames;
+	private WindowedRate ticks;
+	private RollingHistogram frameTime;
+	private RollingHistogram frameJitter;
+	private char[] statText;
 	
 	public static int SCREEN_WIDTH;
 	public static int SCREEN_HEIGHT;
@@ -46,11 +54,16 @@ public class ScreenController extends JFrame {
 	};
 
 	/**
-	 * Create a new ScreenController with the specified ScreenManager.
-	 * @param sm the manager used by this ScreenController
+	 * Create a new ScreenController showing stats from the specified metrics.
+	 * @param metrics the metrics of the game loop
 	 */
-	public ScreenController() {
+	public ScreenController(MetricsRegistry metrics) {
 		s = new ScreenManager();
+		frames = metrics.rate(Core.FRAMES);
+		ticks = metrics.rate(Core.TICKS);
+		frameTime = metrics.histogram(Core.FRAME_TIME);
+		frameJitter = metrics.histogram(Core.FRAME_JITTER);
+		statText = new char[32];
 		
 		DisplayMode dm = s.getCurrentDisplayMode();
 		SCREEN_WIDTH = dm.getWidth();
@@ -59,12 +72,10 @@ public class ScreenController extends JFrame {
 		final ScreenController sc = this;
 		screens = new HashMap<String, VisibleScreen>();
 		
-		final String[] files = {"level1/", "level2/", "level3/", "level4/", "level5/", "level6/"};
-		
 		try {
 			SwingUtilities.invokeAndWait(new Runnable() {
 				public void run() {
-					game = new GameScreen(sc, files);
+					game = new GameScreen(sc, LevelGenerator.LEVELS);
 					StartScreen start = new StartScreen(sc);
 					GameOverScreen gameOver = new GameOverScreen(sc);
 					InstructionScreen instr = new InstructionScreen(sc);
@@ -84,6 +95,11 @@ public class ScreenController extends JFrame {
 			System.exit(0);
 		}
 		
+		for (TickPhase phase : TickPhase.values()) {
+			metrics.register("tick.phase." + phase.name().toLowerCase(), game.getProfiler().getHistogram(phase));
+		}
+		metrics.register("tick.phase.total", game.getProfiler().getTotal());
+		
 		// Initialize an easy level. This will later be moved to a
 		// separate level-generator class.
 		//Level l = new Level(LevelDesigner.levelOne());
@@ -105,7 +121,8 @@ public class ScreenController extends JFrame {
 	
 	/**
 	 * Updates the screen currently in full screen mode. Should only
-	 * be called if the program is running, or nothing happens.
+	 * be called if the program is running, or nothing happens. Called
+	 * by the update thread.
 	 */
 	public void update() {
 		if (currentScreen != null) {
@@ -114,27 +131,61 @@ public class ScreenController extends JFrame {
 	}
 	
 	/**
-	 * Paints the current screen if present
+	 * Paints the current screen if present. Called by the render thread.
 	 */
 	public void paint() {
-		if (currentScreen != null) {
+		VisibleScreen screen = currentScreen;
+		if (screen != null) {
 			final Graphics2D g = s.getGraphics();
 			if (g != null) {
-				currentScreen.paint(g);
-				
-				// BigDecimal used to write fps with only 2 decimal points
-				BigDecimal bd = BigDecimal.valueOf(Core.averageFPS).setScale(2, RoundingMode.CEILING);
-				BigDecimal bd2 = BigDecimal.valueOf(Core.averageUPS).setScale(2, RoundingMode.CEILING);
+				screen.render(g);
 				
-				// Write the FPS and UPS in the top left corner
+				// Write the FPS, UPS and the slowest frames in the top left corner
+				long now = System.nanoTime();
 				g.setColor(Color.BLACK);
-				g.drawString("FPS: " + bd, 20, 20);
-				g.drawString("UPS: " + bd2, 20, 40);
+				drawStat(g, "FPS: ", frames.getRate(now)*100, 20, 20);
+				drawStat(g, "UPS: ", ticks.getRate(now)*100, 20, 40);
+				drawStat(g, "p99 frame ms: ", frameTime.getPercentile(99)/10000.0, 20, 60);
+				drawStat(g, "p99 jitter ms: ", frameJitter.getPercentile(99)/10000.0, 20, 80);
 				s.update();
 			}
 		}
 	}
 	
+	/*
+	 * Write a label followed by a value given in hundredths, with two
+	 * decimals. The text is built in a reused array to avoid allocating
+	 * every frame.
+	 */
+	private void drawStat(Graphics g, String label, double hundredths, int x, int y) {
+		long value = Math.round(hundredths);
+		int length = label.length();
+		label.getChars(0, length, statText, 0);
+		
+		// Digits are written backwards from the end of the array
+		int end = statText.length;
+		int start = end;
+		statText[--start] = (char)('0' + value % 10);
+		statText[--start] = (char)('0' + value / 10 % 10);
+		statText[--start] = '.';
+		value /= 100;
+		do {
+			statText[--start] = (char)('0' + value % 10);
+			value /= 10;
+		} while (value > 0 && start > length);
+		System.arraycopy(statText, start, statText, length, end - start);
+		g.drawChars(statText, 0, length + end - start, x, y);
+	}
+	
+	/**
+	 * Returns the refresh rate of the screen, or
+	 * DisplayMode.REFRESH_RATE_UNKNOWN if it is not known.
+	 * @return the refresh rate of the screen in Hz
+	 */
+	public int getRefreshRate() {
+		return s.getCurrentDisplayMode().getRefreshRate();
+	}
+	
 	/**
 	 * Start the program. This sets running to true and calls setStartScreen().
 	 */
@@ -206,6 +257,14 @@ public class ScreenController extends JFrame {
 		currentScreen.requestFocusInWindow();
 	}
 	
+	/**
+	 * Saves the recording of the level being played, if one is made.
+	 * Should be called by the update thread.
+	 */
+	public void saveRecording() {
+		game.saveRecording();
+	}
+	
 	/**
 	 * Exit the program. This sets running to false and removes any
 	 * screen currently in full screen mode.
@@ -0,0 +1,80 @@
+package mariocraft.ui.components;
+
+import java.awt.*;
+
+import mariocraft.metrics.RollingHistogram;
+import mariocraft.metrics.TickProfiler;
+import mariocraft.model.TickPhase;
+
+/**
+ * A table drawn on top of the game showing the median, 99th percentile
+ * and maximum time of each phase of the latest updates, in microseconds.
+ * @author Erik
+ *
+ */
+public class ProfilerOverlay {
+	
+	private static final int ROW_HEIGHT = 16;
+	private static final int NAME_WIDTH = 140;
+	private static final int COLUMN_WIDTH = 70;
+	private static final Font font = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+	private static final Color fg = Color.WHITE;
+	private static final Color bg = new Color(0f, 0f, 0f, 0.6f);
+	
+	private TickProfiler profiler;
+	private StringBuilder sb;
+	
+	/**
+	 * Create an overlay showing the measurements of the specified profiler
+	 * @param profiler
+	 */
+	public ProfilerOverlay(TickProfiler profiler) {
+		this.profiler = profiler;
+		sb = new StringBuilder();
+	}
+	
+	/**
+	 * Draw the overlay with its top left corner at the specified position
+	 * @param g
+	 * @param x
+	 * @param y
+	 */
+	public void draw(Graphics g, int x, int y) {
+		TickPhase[] phases = TickPhase.values();
+		g.setColor(bg);
+		g.fillRect(x, y, NAME_WIDTH + 3*COLUMN_WIDTH + 10, (phases.length + 2)*ROW_HEIGHT + 10);
+		g.setColor(fg);
+		g.setFont(font);
+		
+		int row = y + 5 + ROW_HEIGHT;
+		g.drawString("Phase (us)", x + 5, row);
+		g.drawString("p50", x + 5 + NAME_WIDTH, row);
+		g.drawString("p99", x + 5 + NAME_WIDTH + COLUMN_WIDTH, row);
+		g.drawString("max", x + 5 + NAME_WIDTH + 2*COLUMN_WIDTH, row);
+		for (TickPhase phase : phases) {
+			row += ROW_HEIGHT;
+			drawRow(g, phase.getTitle(), profiler.getHistogram(phase), x + 5, row);
+		}
+		row += ROW_HEIGHT;
+		drawRow(g, "Total", profiler.getTotal(), x + 5, row);
+	}
+	
+	/*
+	 * Draw the name and the statistics of a histogram on one row
+	 */
+	private void drawRow(Graphics g, String name, RollingHistogram h, int x, int y) {
+		g.drawString(name, x, y);
+		g.drawString(micros(h.getPercentile(50)), x + NAME_WIDTH, y);
+		g.drawString(micros(h.getPercentile(99)), x + NAME_WIDTH + COLUMN_WIDTH, y);
+		g.drawString(micros(h.getMax()), x + NAME_WIDTH + 2*COLUMN_WIDTH, y);
+	}
+	
+	/*
+	 * Format nanoseconds as microseconds with one decimal
+	 */
+	private String micros(long nanos) {
+		sb.setLength(0);
+		sb.append(nanos/1000).append('.').append((nanos/100)%10);
+		return sb.toString();
+	}
+}
@@ -6,17 +6,22 @@ import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 
+import mariocraft.ui.Core;
 import mariocraft.ui.ScreenController;
-import mariocraft.model.Block;
-import mariocraft.model.Boulder;
+import mariocraft.util.TripleBuffer;
+import mariocraft.metrics.TickProfiler;
+import mariocraft.model.InputRecording;
 import mariocraft.model.KeyState;
 import mariocraft.model.Level;
 import mariocraft.model.LevelGenerator;
+import mariocraft.model.LevelSnapshot;
 import mariocraft.ui.components.*;
 
 /**
  * Class to handle the game updates, changes between levels and
- * pausing/resuming.
+ * pausing/resuming. The game is updated on one thread and painted on
+ * another. After every update a snapshot of the level is published,
+ * and painting only ever looks at the latest snapshot.
  * @author Erik
  *
  */
@@ -25,12 +30,25 @@ public class GameScreen extends VisibleScreen {
 	
 	private static int START_LIVES = 30;
 	
+	/**
+	 * The system property naming a directory to save a recording of
+	 * every level played in, for replaying with the HeadlessRunner.
+	 */
+	public static final String RECORD_PROPERTY = "mariocraft.record";
+	
 	private KeyState keys;
+	private KeyState tickKeys;
+	private InputRecording recording;
+	private File recordDir;
 	LevelGenerator lg;
 	private Level level;
 	private PauseMenu pmenu;
-	private boolean isPaused;
-	private int numLives;
+	private TickProfiler profiler;
+	private ProfilerOverlay overlay;
+	private TripleBuffer<LevelSnapshot> snapshots;
+	private volatile boolean isPaused;
+	private volatile int numLives;
+	private boolean levelCompleted;	// The level complete screen has been shown for the current level
 
 	/**
 	 * Creates a game screen.
@@ -46,6 +64,16 @@ public class GameScreen extends VisibleScreen {
 		pmenu = new PauseMenu();
 		
 		keys = new KeyState();
+		tickKeys = new KeyState();
+		String dir = System.getProperty(RECORD_PROPERTY);
+		if (dir != null) {
+			recordDir = new File(dir);
+			recordDir.mkdirs();
+		}
+		
+		profiler = new TickProfiler();
+		overlay = new ProfilerOverlay(profiler);
+		snapshots = new TripleBuffer<LevelSnapshot>(new LevelSnapshot(), new LevelSnapshot(), new LevelSnapshot());
 		
 		addKeyListener(keys);
 		addMouseListener(pmenu);	
@@ -54,13 +82,19 @@ public class GameScreen extends VisibleScreen {
 	}
 	
 	/**
-	 * Sets the next level in the game. Should only be called if there
-	 * are more levels in the LevelGenerator
+	 * Sets the next level in the game and starts loading the one after
+	 * it in the background. Should only be called if there are more
+	 * levels in the LevelGenerator. Waits for the level if it has not
+	 * finished loading.
 	 */
 	public void setNextLevel() {
 		try {
-			lg.generateNext();
 			setLevel(lg.getNextLevel());
+			if (recordDir != null) {
+				recording = new InputRecording(lg.levelName(), level.getSeed(),
+						ScreenController.SCREEN_WIDTH, ScreenController.SCREEN_HEIGHT);
+			}
+			lg.preloadNext();
 		} catch (IOException e) {
 			System.err.println("Error while loading level");
 			e.printStackTrace();
@@ -77,12 +111,54 @@ public class GameScreen extends VisibleScreen {
 	 * @param l
 	 */
 	public void setLevel(Level l) {
+	    saveRecording();
 	    keys.reset();
-	    Block.unresize();
-	    Boulder.unresize();
-		l.setKeyState(keys);
+	    tickKeys.reset();
+	    levelCompleted = false;
+		l.setKeyState(tickKeys);
+		l.setProfiler(profiler);
 		l.setScreenSize(ScreenController.SCREEN_WIDTH, ScreenController.SCREEN_HEIGHT);
 		level = l;
+		publishSnapshot();
+	}
+	
+	/**
+	 * Saves the recording of the current level, if one is made, and
+	 * stops recording.
+	 */
+	public void saveRecording() {
+		if (recording == null) {
+			return;
+		}
+		File file = new File(recordDir, System.currentTimeMillis() + "-" + recording.getLevelName().replace("/", "") + ".rec");
+		try {
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+			try {
+				recording.write(out);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			System.err.println("Error while saving recording");
+			e.printStackTrace();
+		}
+		recording = null;
+	}
+	
+	/*
+	 * Let the painting thread see the level as it is now
+	 */
+	private void publishSnapshot() {
+		level.snapshot(snapshots.getWriteBuffer());
+		snapshots.publish();
+	}
+	
+	/**
+	 * Returns the profiler measuring the updates of the levels
+	 * @return the profiler measuring the updates of the levels
+	 */
+	public TickProfiler getProfiler() {
+		return profiler;
 	}
 	
 	/**
@@ -110,13 +186,19 @@ public class GameScreen extends VisibleScreen {
 							}
 						});
 					} else {
-					    SwingUtilities.invokeLater(new Runnable() {
-                            public void run() {
-                                controller.setLevelCompleteScreen(lg.levelNumber());
-                            }
-                        });
-						setNextLevel();
-						
+						if (!levelCompleted) {
+							final int levelNumber = lg.levelNumber();
+							SwingUtilities.invokeLater(new Runnable() {
+								public void run() {
+									controller.setLevelCompleteScreen(levelNumber);
+								}
+							});
+							levelCompleted = true;
+						}
+						// Let the level complete screen show until the next level has loaded
+						if (lg.hasLoadedNext()) {
+							setNextLevel();
+						}
 					}
 				} else {
 					numLives--;
@@ -133,20 +215,44 @@ public class GameScreen extends VisibleScreen {
 					}
 				}
 			} else {
+				// Read the keys once, so that the update sees the same keys as the recording
+				int bits = keys.getBits();
+				tickKeys.setBits(bits);
+				if (recording != null) {
+					recording.record(bits);
+				}
 				level.update();
 			}
+			publishSnapshot();
 		}
 	}
 	
 	/**
-	 * Paint contents of the level to the screen
+	 * Does nothing. Swing may ask for a repaint on the event dispatch
+	 * thread, but only the render thread may take snapshots, and it
+	 * paints the whole screen every frame anyway.
+	 */
+	public void paint(Graphics g) {}
+	
+	/**
+	 * Paint contents of the level to the screen, interpolated between
+	 * the two latest updates by how long ago the latest one was.
+	 * Called by the render thread.
 	 */
-	public void paint(Graphics g) {
+	public void render(Graphics g) {
 		super.paint(g);
-		level.paint(g);
+		LevelSnapshot snapshot = snapshots.getReadBuffer();
+		float alpha = 1;
+		if (!isPaused) {
+			alpha = Math.min(1, (float)(System.nanoTime() - snapshot.getTime())/Core.TICK_PERIOD);
+		}
+		snapshot.paint(g, alpha);
 		if (isPaused) {
 			pmenu.draw(g);
 		}
+		if (keys.profiler) {
+			overlay.draw(g, 20, 60);
+		}
 		g.setColor(Color.BLACK);
 		g.setFont(new MarioCraftFont());
 		g.drawString(Integer.valueOf(numLives).toString()+"x", ScreenController.SCREEN_WIDTH - 50, 50);
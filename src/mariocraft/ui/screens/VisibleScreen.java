@@ -35,6 +35,15 @@ public abstract class VisibleScreen extends JPanel {
 	
 	public void updateState() {}
 	
+	/**
+	 * Paints the screen on the render thread. By default the same as
+	 * what Swing paints.
+	 * @param g
+	 */
+	public void render(Graphics g) {
+		paint(g);
+	}
+	
 	public void paintComponent(Graphics g) {
 		super.paintComponent(g);
 		if (background == null) {
@@ -42,6 +42,18 @@ public class AnimationUtil {
         return imgs;
     }
     
+    /**
+     * Returns resized copies of a matrix of images, leaving the original alone.
+     */
+    public static BufferedImage[][] resizedImages(BufferedImage[][] images, Dimension size){
+        BufferedImage[][] copy = new BufferedImage[images.length][];
+        for(int i = 0;i < images.length;i++) {
+            copy[i] = images[i].clone();
+        }
+        resizeImages(copy, size);
+        return copy;
+    }
+    
     /**
      * Resizes a matrix of images.
      */
@@ -0,0 +1,29 @@
+package mariocraft.util;
+
+/**
+ * Tests one box against many boxes at once, e.g. a sprite against the
+ * colliders found around it. The boxes are packed in parallel arrays,
+ * box i being (xs[i], ys[i], ws[i], hs[i]), and the result is a mask with
+ * one bit per box: box i is bit i%64 of mask[i/64].
+ *
+ * @author Sebastian Olsson
+ */
+public interface BatchIntersector {
+
+    /**
+     * Finds the boxes that intersect or touch the box (x, y, w, h).
+     *
+     * @param x Left edge of the box
+     * @param y Top edge of the box
+     * @param w Width of the box
+     * @param h Height of the box
+     * @param xs Left edges of the boxes
+     * @param ys Top edges of the boxes
+     * @param ws Widths of the boxes
+     * @param hs Heights of the boxes
+     * @param n The number of boxes
+     * @param mask Where to set the bits of the boxes hit, with room for n bits
+     * @return The number of boxes hit
+     */
+    int intersect(float x, float y, float w, float h, float[] xs, float[] ys, float[] ws, float[] hs, int n, long[] mask);
+}
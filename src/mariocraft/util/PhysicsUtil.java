@@ -2,10 +2,12 @@ package mariocraft.util;
 
 import java.awt.geom.Rectangle2D;
 
-import mariocraft.geom.Vector2D;
+import mariocraft.model.ColliderBuffer;
+import mariocraft.model.Contact;
+import mariocraft.model.Direction;
 import mariocraft.model.Entity;
 import mariocraft.model.Protagonist;
-import mariocraft.model.Ball;
+import mariocraft.model.BallSystem;
 
 /**
  * Utility class storing commonly used methods related to game physics.
@@ -14,8 +16,9 @@ import mariocraft.model.Ball;
  * @version 2011-05-03
  */
 public class PhysicsUtil {
-    private static final Vector2D X_AXIS = new Vector2D(1,0);
-    private static final Vector2D Y_AXIS = new Vector2D(0,1);
+    private static final int MAX_BOUNCES = 4;   // The most times a ball bounces in one move.
+    private static final float CONTACT_SLOP = 0.01f;    // How far from a top a sprite still stands on it.
+    private static final BatchIntersector BATCH = loadBatchIntersector();
     
     /**
      * Returns true if and only if the two given entities intersect.
@@ -31,110 +34,385 @@ public class PhysicsUtil {
     }
     
     /**
-     * Returns true if and only if the two given entities touch each other.
+     * Returns the way to test a box against many boxes: the Vector API if
+     * it was compiled in, the JVM was started with it and the system
+     * property mariocraft.vector is true, else a plain loop. The Vector
+     * API has to be asked for, since it allocates on every call and the
+     * level update otherwise makes no garbage.
      * 
-     * @param e1 Two-dimensional entity
-     * @param e2 Two-dimensional entity
-     * @return True if and only if part of e1's border lies on part of that of e2
+     * @return The batch intersector
      */
-    public static boolean touches(Entity e1, Entity e2) {
-        Rectangle2D.Float r1 = e1.getRectangle();
-        Rectangle2D.Float r2 = e2.getRectangle();
-        final boolean RIGHT = r1.x+r1.width == r2.x && r1.y <= r2.y+r2.height && r1.y+r1.height >= r2.y;
-        final boolean LEFT = r1.x == r2.x+r2.width && r1.y <= r2.y+r2.height && r1.y+r1.height >= r2.y;
-        final boolean ABOVE = r1.y == r2.y+r2.height && r1.x <= r2.x+r2.width && r1.x+r1.width >= r2.x;
-        final boolean BELOW = r1.y+r1.height == r2.y && r1.x <= r2.x+r2.width && r1.x+r1.width >= r2.x;
-        return (LEFT || RIGHT || ABOVE || BELOW);
+    public static BatchIntersector getBatchIntersector() {
+        return BATCH;
+    }
+    
+    private static BatchIntersector loadBatchIntersector() {
+        if(!Boolean.getBoolean("mariocraft.vector")) {
+            return new ScalarIntersector();
+        }
+        try {
+            return (BatchIntersector)Class.forName("mariocraft.util.VectorIntersector").getDeclaredConstructor().newInstance();
+        } catch(ClassNotFoundException e) {
+            // Not compiled in.
+            return new ScalarIntersector();
+        } catch(LinkageError e) {
+            // Compiled in, but the jdk.incubator.vector module is missing.
+            return new ScalarIntersector();
+        } catch(Exception e) {
+            throw new IllegalStateException("Could not create the vector intersector", e);
+        }
     }
     
     /**
-     * Returns true if and only if entity e1 touches entity e2 from above.
+     * Moves the protagonist by its velocity. It stops where it would first
+     * hit one of the colliders and slides along it with what is left of the
+     * movement, so that it cannot pass through a block however fast it moves.
+     * If it already overlaps a collider, e.g. a platform that moved into it,
+     * it is first pushed out of it the shortest way. Afterwards the ground
+     * contact of the protagonist tells what it stands on, if anything.
      * 
-     * @param e1 Two-dimensional entity
-     * @param e2 Two-dimensional entity
-     * @return True if and only if entity e1 touches entity e2 from above
+     * @param sprite Moving protagonist
+     * @param colliders What the protagonist may hit during the movement
      */
-    public static boolean touchesAbove(Entity e1, Entity e2) {
-        Rectangle2D.Float r1 = e1.getRectangle();
-        Rectangle2D.Float r2 = e2.getRectangle();
-        return r1.y == r2.y+r2.height && r1.x <= r2.x+r2.width && r1.x+r1.width >= r2.x;
+    public static void moveProtagonist(Protagonist sprite, ColliderBuffer colliders) {
+        Rectangle2D.Float start = sprite.getRectangle();
+        // Mostly the protagonist overlaps nothing, which one batch test tells.
+        // Until it has been pushed, only the colliders hit need a closer look.
+        if(colliders.intersect(start.x, start.y, start.width, start.height) > 0) {
+            boolean moved = false;
+            for(int i = 0;i < colliders.size();i++) {
+                if(!moved && !colliders.isHit(i)) {
+                    continue;
+                }
+                Direction pushed = pushOut(sprite, colliders, i);
+                moved |= pushed != null;
+                if(pushed == Direction.LEFT || pushed == Direction.RIGHT) {
+                    sprite.setVelocity(0, sprite.getVelocityY());
+                } else if(pushed != null) {
+                    sprite.setVelocity(sprite.getVelocityX(), 0);
+                }
+            }
+        }
+        float dx = sprite.getVelocityX();
+        float dy = sprite.getVelocityY();
+        // Every hit stops the movement along one axis, so there are at most two.
+        while(dx != 0 || dy != 0) {
+            Rectangle2D.Float r = sprite.getRectangle();
+            int i = firstHit(r.x, r.y, r.width, r.height, dx, dy, colliders);
+            if(i == -1) {
+                sprite.setLocation(r.x+dx, r.y+dy);
+                break;
+            }
+            float t = timeOfImpact(r.x, r.y, r.width, r.height, dx, dy, colliders, i);
+            if(hitsAlongX(r.x, r.y, r.width, r.height, dx, dy, colliders, i)) {
+                sprite.setLocation(stoppedX(r.x, r.width, dx, t, true, colliders, i), stoppedY(r.y, r.height, dy, t, true, colliders, i));
+                sprite.setVelocity(0, sprite.getVelocityY());
+                dx = 0;
+                dy *= 1-t;
+            } else {
+                sprite.setLocation(stoppedX(r.x, r.width, dx, t, false, colliders, i), stoppedY(r.y, r.height, dy, t, false, colliders, i));
+                sprite.setVelocity(sprite.getVelocityX(), 0);
+                dx *= 1-t;
+                dy = 0;
+            }
+        }
+        findGround(sprite, colliders);
     }
     
     /**
-     * Returns a vector from the midpoint of one entity to the
-     * midpoint of another entity.
+     * Moves some balls of a ball system by their velocities, like
+     * moveBall(), against colliders found once for all of them. One batch
+     * test of the area that a ball may reach picks out what it may hit.
+     * Most balls are in the open most of the time and just move; the
+     * others are moved against the few colliders picked out for them.
      * 
-     * @param e1 Initial point
-     * @param e2 Terminal point
-     * @return Distance vector from e1 to e2
+     * @param balls The balls
+     * @param indices The indices of the balls
+     * @param from Where in indices the moving balls start
+     * @param to Where in indices the moving balls end
+     * @param colliders What the balls may hit during the movement
+     * @param near Scratch space for what one ball may hit
      */
-    public static Vector2D distance(Entity e1, Entity e2) {
-        Vector2D d = new Vector2D(e2.getCenterX()-e1.getCenterX(),e2.getCenterY()-e1.getCenterY()); 
-        return d;
+    public static void moveBalls(BallSystem balls, int[] indices, int from, int to, ColliderBuffer colliders, ColliderBuffer near) {
+        for(int k = from;k < to;k++) {
+            int b = indices[k];
+            float x = balls.getX(b);
+            float y = balls.getY(b);
+            float reach = balls.getSpeed(b);
+            if(colliders.intersect(x-reach, y-reach, balls.getWidth(b)+2*reach, balls.getHeight(b)+2*reach) == 0) {
+                balls.setLocation(b, x+balls.getVelocityX(b), y+balls.getVelocityY(b));
+            } else {
+                near.clear();
+                near.addHits(colliders);
+                moveBall(balls, b, near);
+            }
+        }
     }
-
+    
+    /**
+     * Moves ball b of a ball system by its velocity. It bounces off the
+     * first of the colliders that it would hit and goes on with what is left
+     * of the movement in the new direction. If it already overlaps a collider
+     * it is first pushed out of it the shortest way and bounces off it.
+     * 
+     * @param balls The balls
+     * @param b The index of the moving ball
+     * @param colliders What the ball may hit during the movement
+     */
+    public static void moveBall(BallSystem balls, int b, ColliderBuffer colliders) {
+        float w = balls.getWidth(b);
+        float h = balls.getHeight(b);
+        if(colliders.intersect(balls.getX(b), balls.getY(b), w, h) > 0) {
+            boolean moved = false;
+            for(int i = 0;i < colliders.size();i++) {
+                if(!moved && !colliders.isHit(i)) {
+                    continue;
+                }
+                float x = balls.getX(b);
+                float y = balls.getY(b);
+                Direction pushed = overlapDirection(x, y, w, h, colliders, i);
+                if(pushed != null) {
+                    balls.setLocation(b, pushedX(pushed, x, w, colliders, i), pushedY(pushed, y, h, colliders, i));
+                    moved = true;
+                }
+                if(pushed == Direction.LEFT || pushed == Direction.RIGHT) {
+                    balls.bounceHorizontally(b);
+                } else if(pushed != null) {
+                    balls.bounceVertically(b);
+                }
+            }
+        }
+        float left = 1;     // How much of the movement is left.
+        for(int bounce = 0;bounce <= MAX_BOUNCES;bounce++) {
+            float dx = balls.getVelocityX(b)*left;
+            float dy = balls.getVelocityY(b)*left;
+            float x = balls.getX(b);
+            float y = balls.getY(b);
+            int i = firstHit(x, y, w, h, dx, dy, colliders);
+            if(i == -1) {
+                balls.setLocation(b, x+dx, y+dy);
+                return;
+            }
+            float t = timeOfImpact(x, y, w, h, dx, dy, colliders, i);
+            boolean alongX = hitsAlongX(x, y, w, h, dx, dy, colliders, i);
+            balls.setLocation(b, stoppedX(x, w, dx, t, alongX, colliders, i), stoppedY(y, h, dy, t, alongX, colliders, i));
+            if(alongX) {
+                balls.bounceHorizontally(b);
+            } else {
+                balls.bounceVertically(b);
+            }
+            left *= 1-t;
+        }
+    }
+    
     /**
-     * When the protagonist collides with a block, this method adjusts the position
-     * and velocity of the sprite in a way so that they cease to intersect and
-     * in a physically adequate manner.
+     * Fills in the ground contact of the protagonist: the collider under it
+     * whose top lies within CONTACT_SLOP of its bottom edge, the one under
+     * most of it if there are several. The protagonist is put exactly on
+     * the top, so that a rounding error in the movement of a platform does
+     * not make it fall off. It stands on nothing while it moves upwards.
+     */
+    private static void findGround(Protagonist sprite, ColliderBuffer colliders) {
+        Contact ground = sprite.getGroundContact();
+        ground.clear();
+        if(sprite.getVelocityY() < 0) {
+            return;
+        }
+        Rectangle2D.Float r = sprite.getRectangle();
+        float bottom = r.y+r.height;
+        int support = -1;
+        float most = -1;
+        for(int i = 0;i < colliders.size();i++) {
+            float x = colliders.getX(i);
+            float overlap = Math.min(r.x+r.width, x+colliders.getWidth(i))-Math.max(r.x, x);
+            if(overlap >= 0 && overlap > most && Math.abs(bottom-colliders.getY(i)) <= CONTACT_SLOP) {
+                support = i;
+                most = overlap;
+            }
+        }
+        if(support != -1) {
+            float y = colliders.getY(support);
+            ground.set(colliders.getX(support), y, colliders.getWidth(support), colliders.getHeight(support),
+                    colliders.getEntity(support), 0, -1, bottom-y);
+            sprite.setLocation(r.x, y-r.height);
+        }
+    }
+    
+    /**
+     * Pushes an entity out of collider i along the axis where they overlap
+     * the least.
      * 
-     * @param sprite Colliding protagonist
-     * @param block Intersecting block
-     */
-    public static void protagonistCollision(Protagonist sprite, Entity block) {
-        sprite.retreat();
-        Vector2D velocity = sprite.getVelocity();
-        final boolean RIGHT = sprite.getCenterX()-sprite.getRectangleWidth()/2 >= block.getCenterX()+block.getRectangleWidth()/2;
-        final boolean ABOVE = sprite.getCenterY()+sprite.getRectangleHeight()/2 <= block.getCenterY()-block.getRectangleHeight()/2;
-        final boolean LEFT = sprite.getCenterX()+sprite.getRectangleWidth()/2 <= block.getCenterX()-block.getRectangleWidth()/2;
-        final boolean BELOW = sprite.getCenterY()-sprite.getRectangleHeight()/2 >= block.getCenterY()+block.getRectangleHeight()/2;
-        if(RIGHT) {
-            sprite.setVelocity(velocity.project(Y_AXIS));
-            sprite.setCenterX(block.getCenterX()+block.getRectangleWidth()/2+sprite.getRectangleWidth()/2);
-        } else if(LEFT) {
-            sprite.setVelocity(velocity.project(Y_AXIS));
-            sprite.setCenterX(block.getCenterX()-block.getRectangleWidth()/2-sprite.getRectangleWidth()/2);
-        } else if(ABOVE) {
-            sprite.setVelocity(velocity.project(X_AXIS));
-            sprite.setCenterY(block.getCenterY()-block.getRectangleHeight()/2-sprite.getRectangleHeight()/2);
-            sprite.setGround(block);
-            sprite.setAirborne(false);
-            sprite.setJumping(false);
-            sprite.updateTimeAirborne();
-        } else if(BELOW) {
-            sprite.setVelocity(velocity.project(X_AXIS));
-            sprite.setCenterY(block.getCenterY()+block.getRectangleHeight()/2+sprite.getRectangleHeight()/2);
-        } else {        // Recoil collision.
-            Vector2D recoil = Vector2D.generate(block.getCenterpoint(), sprite.getCenterpoint()).normalize();
-            sprite.setCenterX(sprite.getCenterX()+30*recoil.x);
-            sprite.setCenterY(sprite.getCenterY()+30*recoil.y);
-        }
-        sprite.move();
-    }
-    
-    /**
-     * Makes a ball bounce off a block on contact.
+     * @return The direction in which the entity was pushed, or null if
+     *         they did not overlap
+     */
+    private static Direction pushOut(Entity e, ColliderBuffer colliders, int i) {
+        Rectangle2D.Float r = e.getRectangle();
+        Direction pushed = overlapDirection(r.x, r.y, r.width, r.height, colliders, i);
+        if(pushed != null) {
+            e.setLocation(pushedX(pushed, r.x, r.width, colliders, i), pushedY(pushed, r.y, r.height, colliders, i));
+        }
+        return pushed;
+    }
+    
+    /**
+     * Returns the direction in which a rectangle should be pushed out of
+     * collider i: along the axis where they overlap the least.
      * 
-     * @param sprite Colliding ball
-     * @param block Intersecting block
-     */
-    public static void ballCollision(Ball sprite, Entity block) {
-        sprite.retreat();
-        final boolean RIGHT = sprite.getCenterX()-sprite.getRectangleWidth()/2 >= block.getCenterX()+block.getRectangleWidth()/2;
-        final boolean ABOVE = sprite.getCenterY()+sprite.getRectangleHeight()/2 <= block.getCenterY()-block.getRectangleHeight()/2;
-        final boolean LEFT = sprite.getCenterX()+sprite.getRectangleWidth()/2 <= block.getCenterX()-block.getRectangleWidth()/2;
-        final boolean BELOW = sprite.getCenterY()-sprite.getRectangleHeight()/2 >= block.getCenterY()+block.getRectangleHeight()/2;
-        if(RIGHT || LEFT) {
-            sprite.bounceHorizontally();
-        } else if(ABOVE || BELOW) {
-            sprite.bounceVertically();
+     * @return The direction, or null if they do not overlap
+     */
+    private static Direction overlapDirection(float rx, float ry, float rw, float rh, ColliderBuffer colliders, int i) {
+        float x = colliders.getX(i);
+        float y = colliders.getY(i);
+        float width = colliders.getWidth(i);
+        float height = colliders.getHeight(i);
+        // The same test as Rectangle2D.intersects, in double precision
+        if(rw <= 0 || rh <= 0 || width <= 0 || height <= 0
+                || (double)x+width <= rx || (double)y+height <= ry || x >= (double)rx+rw || y >= (double)ry+rh) {
+            return null;
+        }
+        float up = ry+rh-y;
+        float down = y+height-ry;
+        float left = rx+rw-x;
+        float right = x+width-rx;
+        float least = Math.min(Math.min(up, down), Math.min(left, right));
+        if(least == up) {
+            return Direction.UP;
+        } else if(least == down) {
+            return Direction.DOWN;
+        } else if(least == left) {
+            return Direction.LEFT;
         } else {
-            Vector2D recoil = Vector2D.generate(block.getCenterpoint(), sprite.getCenterpoint()).normalize();
-            sprite.setCenterX(sprite.getCenterX()+15*recoil.x);
-            sprite.setCenterY(sprite.getCenterY()+15*recoil.y);
-            sprite.bounceHorizontally();
-            sprite.bounceVertically();
+            return Direction.RIGHT;
+        }
+    }
+    
+    /**
+     * Returns the left edge of a rectangle pushed out of collider i.
+     */
+    private static float pushedX(Direction pushed, float rx, float rw, ColliderBuffer colliders, int i) {
+        if(pushed == Direction.LEFT) {
+            return colliders.getX(i)-rw;
+        } else if(pushed == Direction.RIGHT) {
+            return colliders.getX(i)+colliders.getWidth(i);
+        }
+        return rx;
+    }
+    
+    /**
+     * Returns the top edge of a rectangle pushed out of collider i.
+     */
+    private static float pushedY(Direction pushed, float ry, float rh, ColliderBuffer colliders, int i) {
+        if(pushed == Direction.UP) {
+            return colliders.getY(i)-rh;
+        } else if(pushed == Direction.DOWN) {
+            return colliders.getY(i)+colliders.getHeight(i);
+        }
+        return ry;
+    }
+    
+    /**
+     * Returns the collider that a rectangle moving by (dx, dy) hits first.
+     * A collider that is hit touches the area swept by the rectangle, so
+     * one batch test of that area picks out the few colliders whose time
+     * of impact has to be found.
+     * 
+     * @return The index of the collider, or -1 if it hits none
+     */
+    private static int firstHit(float rx, float ry, float rw, float rh, float dx, float dy, ColliderBuffer colliders) {
+        if(colliders.intersect(Math.min(rx, rx+dx), Math.min(ry, ry+dy), rw+Math.abs(dx), rh+Math.abs(dy)) == 0) {
+            return -1;
+        }
+        int first = -1;
+        float firstTime = Float.POSITIVE_INFINITY;
+        for(int i = colliders.nextHit(0);i != -1;i = colliders.nextHit(i+1)) {
+            float t = timeOfImpact(rx, ry, rw, rh, dx, dy, colliders, i);
+            if(t < firstTime) {
+                first = i;
+                firstTime = t;
+            }
+        }
+        return first;
+    }
+    
+    /**
+     * Returns how far into the movement by (dx, dy) that a rectangle hits
+     * collider i, from 0 at the start to 1 at the end. Rectangles that only
+     * touch are not hit until they move into each other.
+     * 
+     * @return The time of impact, or positive infinity if they do not meet
+     */
+    private static float timeOfImpact(float rx, float ry, float rw, float rh, float dx, float dy, ColliderBuffer colliders, int i) {
+        float x = colliders.getX(i);
+        float y = colliders.getY(i);
+        float width = colliders.getWidth(i);
+        float height = colliders.getHeight(i);
+        float entry = Math.max(entryTime(rx, rw, x, width, dx), entryTime(ry, rh, y, height, dy));
+        float exit = Math.min(exitTime(rx, rw, x, width, dx), exitTime(ry, rh, y, height, dy));
+        if(entry < 0 || entry > 1 || entry >= exit) {
+            return Float.POSITIVE_INFINITY;
+        }
+        return entry;
+    }
+    
+    /**
+     * Returns true if a rectangle moving by (dx, dy) hits a side of
+     * collider i rather than its top or bottom.
+     */
+    private static boolean hitsAlongX(float rx, float ry, float rw, float rh, float dx, float dy, ColliderBuffer colliders, int i) {
+        return entryTime(rx, rw, colliders.getX(i), colliders.getWidth(i), dx)
+             > entryTime(ry, rh, colliders.getY(i), colliders.getHeight(i), dy);
+    }
+    
+    /**
+     * Returns when an interval [a, a+size] moving by d starts to overlap
+     * the interval [b, b+bSize].
+     */
+    private static float entryTime(float a, float size, float b, float bSize, float d) {
+        if(d > 0) {
+            return (b-(a+size))/d;
+        } else if(d < 0) {
+            return (b+bSize-a)/d;
+        } else if(a+size > b && a < b+bSize) {
+            return Float.NEGATIVE_INFINITY;
+        } else {
+            return Float.POSITIVE_INFINITY;
+        }
+    }
+    
+    /**
+     * Returns when an interval [a, a+size] moving by d stops overlapping
+     * the interval [b, b+bSize].
+     */
+    private static float exitTime(float a, float size, float b, float bSize, float d) {
+        if(d > 0) {
+            return (b+bSize-a)/d;
+        } else if(d < 0) {
+            return (b-(a+size))/d;
+        } else {
+            return Float.POSITIVE_INFINITY;
+        }
+    }
+    
+    /**
+     * Returns the left edge of a rectangle moved the part t of the way
+     * (dx, dy), put exactly against the side of collider i if it hit it.
+     */
+    private static float stoppedX(float rx, float rw, float dx, float t, boolean alongX, ColliderBuffer colliders, int i) {
+        if(alongX) {
+            return dx > 0 ? colliders.getX(i)-rw : colliders.getX(i)+colliders.getWidth(i);
+        }
+        return rx+t*dx;
+    }
+    
+    /**
+     * Returns the top edge of a rectangle moved the part t of the way
+     * (dx, dy), put exactly against the top or bottom of collider i if it
+     * hit it.
+     */
+    private static float stoppedY(float ry, float rh, float dy, float t, boolean alongX, ColliderBuffer colliders, int i) {
+        if(!alongX) {
+            return dy > 0 ? colliders.getY(i)-rh : colliders.getY(i)+colliders.getHeight(i);
         }
-        sprite.move();
+        return ry+t*dy;
     }
 }
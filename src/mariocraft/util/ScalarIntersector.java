@@ -0,0 +1,31 @@
+package mariocraft.util;
+
+/**
+ * Tests the boxes one at a time. Used where the Vector API is missing.
+ *
+ * @author Sebastian Olsson
+ */
+public class ScalarIntersector implements BatchIntersector {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int intersect(float x, float y, float w, float h, float[] xs, float[] ys, float[] ws, float[] hs, int n, long[] mask) {
+        float right = x+w;
+        float bottom = y+h;
+        int hits = 0;
+        for(int word = 0;word*64 < n;word++) {
+            long bits = 0;
+            int end = Math.min(n, word*64+64);
+            for(int i = word*64;i < end;i++) {
+                if(xs[i] <= right && xs[i]+ws[i] >= x && ys[i] <= bottom && ys[i]+hs[i] >= y) {
+                    bits |= 1L << (i & 63);
+                }
+            }
+            mask[word] = bits;
+            hits += Long.bitCount(bits);
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,62 @@
+package mariocraft.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands objects from one writing thread to one reading thread without
+ * locks. The writer fills its own buffer and publishes it, the reader
+ * takes the latest published buffer. A third buffer sits between them,
+ * so that neither ever has to wait for the other and the reader never
+ * sees a buffer that is being written.
+ * 
+ * @author Sebastian Olsson
+ */
+public class TripleBuffer<T> {
+    private static final int INDEX = 3;  // Bits holding the index of the middle buffer.
+    private static final int FRESH = 4;  // Set when the middle buffer is newer than the reader's.
+    
+    private Object[] buffers;
+    private AtomicInteger middle;
+    private int back;   // Owned by the writer.
+    private int front;  // Owned by the reader.
+    
+    /**
+     * Creates a triple buffer out of three distinct objects.
+     */
+    public TripleBuffer(T a, T b, T c) {
+        buffers = new Object[]{a, b, c};
+        back = 0;
+        middle = new AtomicInteger(1);
+        front = 2;
+    }
+    
+    /**
+     * @return The buffer that the writer may fill. Only to be called by the writer.
+     */
+    @SuppressWarnings("unchecked")
+    public T getWriteBuffer() {
+        return (T)buffers[back];
+    }
+    
+    /**
+     * Makes the write buffer the latest buffer and gives the writer
+     * another one to fill. Only to be called by the writer.
+     */
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+    
+    /**
+     * Returns the latest published buffer. It stays untouched by the
+     * writer until the next call. Only to be called by the reader.
+     * 
+     * @return The latest published buffer
+     */
+    @SuppressWarnings("unchecked")
+    public T getReadBuffer() {
+        if((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX;
+        }
+        return (T)buffers[front];
+    }
+}